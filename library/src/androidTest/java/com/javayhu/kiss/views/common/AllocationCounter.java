@@ -0,0 +1,36 @@
+package com.javayhu.kiss.views.common;
+
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+
+/**
+ * 在主线程上统计一段代码创建的对象个数
+ * <p>
+ * 先执行一次预热(第一次绘制会测量文字、创建阴影bitmap等)，第二次执行时开始计数
+ */
+final class AllocationCounter {
+
+    private AllocationCounter() {
+    }
+
+    @SuppressWarnings("deprecation")
+    static int count(final Runnable action) {
+        final int[] count = new int[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                action.run();
+                Debug.resetThreadAllocCount();
+                Debug.startAllocCounting();
+                action.run();
+                Debug.stopAllocCounting();
+                count[0] = Debug.getThreadAllocCount();
+            }
+        });
+        return count[0];
+    }
+
+    static void runOnMainSync(Runnable action) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(action);
+    }
+}
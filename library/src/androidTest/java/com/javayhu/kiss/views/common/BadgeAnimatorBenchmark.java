@@ -0,0 +1,142 @@
+package com.javayhu.kiss.views.common;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PointF;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+/**
+ * 粒子动画每一帧的绘制耗时，和原来每个碎片一个Paint、一个Random、每帧解析字符串的实现对比
+ * <p>
+ * 结果输出到logcat：adb logcat -s BadgeAnimatorBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeAnimatorBenchmark {
+
+    private static final String TAG = "BadgeAnimatorBenchmark";
+    private static final int BADGE_SIZE = 48;
+    private static final int CANVAS_SIZE = 200;
+    private static final int WARM_UP_FRAMES = 500;
+    private static final int FRAMES = 5000;
+
+    @Test
+    public void drawFrame() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Canvas canvas = new Canvas(Bitmap.createBitmap(CANVAS_SIZE, CANVAS_SIZE, Bitmap.Config.ARGB_8888));
+                PointF center = new PointF(CANVAS_SIZE / 2f, CANVAS_SIZE / 2f);
+
+                BadgeAnimator animator = BadgeAnimator.create(createSnapshot(), center, null,
+                        BadgeAnimator.DEFAULT_PARTICLES_PER_SIDE, BadgeAnimator.DEFAULT_DURATION);
+                runParticles(animator, canvas, WARM_UP_FRAMES);
+                long particles = runParticles(animator, canvas, FRAMES);
+
+                LegacyExplosion legacy = new LegacyExplosion(createSnapshot(), center);
+                runLegacy(legacy, canvas, WARM_UP_FRAMES);
+                long fragments = runLegacy(legacy, canvas, FRAMES);
+
+                Log.i(TAG, "particles: " + particles / FRAMES + " ns/frame, " + animator.getParticleCount() + " particles");
+                Log.i(TAG, "legacy fragments: " + fragments / FRAMES + " ns/frame, " + legacy.getFragmentCount() + " fragments");
+            }
+        });
+    }
+
+    private static Bitmap createSnapshot() {
+        Bitmap snapshot = BadgeBitmapPool.acquire(BADGE_SIZE, BADGE_SIZE);
+        snapshot.eraseColor(0xFFE84E40);
+        return snapshot;
+    }
+
+    //每一帧取动画中的一个时间点，覆盖粒子从大到小的整个过程
+    private static long runParticles(BadgeAnimator animator, Canvas canvas, int frames) {
+        long duration = animator.getDuration();
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            animator.setCurrentPlayTime(i % duration);
+            animator.draw(canvas);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runLegacy(LegacyExplosion legacy, Canvas canvas, int frames) {
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            legacy.draw(canvas, (i % BadgeAnimator.DEFAULT_DURATION) / (float) BadgeAnimator.DEFAULT_DURATION);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * 原来BadgeAnimator的绘制方式，只用于对比
+     */
+    private static class LegacyExplosion {
+
+        private final Fragment[][] mFragments;
+
+        LegacyExplosion(Bitmap badgeBitmap, PointF center) {
+            int width = badgeBitmap.getWidth();
+            int height = badgeBitmap.getHeight();
+            float fragmentSize = Math.max(width, height) / 6f;
+            float startX = center.x - width / 2f;
+            float startY = center.y - height / 2f;
+            mFragments = new Fragment[(int) (height / fragmentSize)][(int) (width / fragmentSize)];
+            for (int i = 0; i < mFragments.length; i++) {
+                for (int j = 0; j < mFragments[i].length; j++) {
+                    Fragment fragment = new Fragment();
+                    fragment.color = badgeBitmap.getPixel((int) (j * fragmentSize), (int) (i * fragmentSize));
+                    fragment.x = startX + j * fragmentSize;
+                    fragment.y = startY + i * fragmentSize;
+                    fragment.size = fragmentSize;
+                    fragment.maxSize = Math.max(width, height);
+                    mFragments[i][j] = fragment;
+                }
+            }
+            BadgeBitmapPool.release(badgeBitmap);
+        }
+
+        int getFragmentCount() {
+            return mFragments.length * (mFragments.length > 0 ? mFragments[0].length : 0);
+        }
+
+        void draw(Canvas canvas, float fraction) {
+            Float animatedValue = fraction;
+            for (Fragment[] row : mFragments) {
+                for (Fragment fragment : row) {
+                    float value = Float.parseFloat(animatedValue.toString());
+                    fragment.update(value, canvas);
+                }
+            }
+        }
+
+        private static class Fragment {
+            final Random random = new Random();
+            final Paint paint = new Paint();
+            float x;
+            float y;
+            float size;
+            int color;
+            int maxSize;
+
+            Fragment() {
+                paint.setAntiAlias(true);
+                paint.setStyle(Paint.Style.FILL);
+            }
+
+            void update(float value, Canvas canvas) {
+                paint.setColor(color);
+                x = x + 0.1f * random.nextInt(maxSize) * (random.nextFloat() - 0.5f);
+                y = y + 0.1f * random.nextInt(maxSize) * (random.nextFloat() - 0.5f);
+                canvas.drawCircle(x, y, size - value * size, paint);
+            }
+        }
+    }
+}
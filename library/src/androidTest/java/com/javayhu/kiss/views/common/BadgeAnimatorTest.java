@@ -0,0 +1,78 @@
+package com.javayhu.kiss.views.common;
+
+import android.graphics.Bitmap;
+import android.graphics.PointF;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * 粒子动画的可重复性：相同的种子得到相同的粒子，位置只由播放的时间决定
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeAnimatorTest {
+
+    private static final int BADGE_SIZE = 48;
+
+    @After
+    public void tearDown() {
+        BadgeAnimator.setRandomSeed(BadgeAnimator.DEFAULT_SEED);
+    }
+
+    @Test
+    public void sameSeedGivesSameBurst() {
+        BadgeAnimator first = create();
+        BadgeAnimator second = create();
+        first.updatePositions(200);
+        second.updatePositions(200);
+        assertEquals(first.getParticleCount(), second.getParticleCount());
+        assertArrayEquals(first.getPoints(), second.getPoints(), 0f);
+    }
+
+    @Test
+    public void differentSeedGivesDifferentBurst() {
+        BadgeAnimator first = create();
+        BadgeAnimator.setRandomSeed(BadgeAnimator.DEFAULT_SEED + 1);
+        BadgeAnimator second = create();
+        first.updatePositions(200);
+        second.updatePositions(200);
+        assertFalse(Arrays.equals(first.getPoints(), second.getPoints()));
+    }
+
+    //60fps和100fps走到同一个时间点，位置一样
+    @Test
+    public void positionsDependOnlyOnPlayTime() {
+        BadgeAnimator slow = create();
+        BadgeAnimator fast = create();
+        for (long time = 0; time <= 240; time += 16) {
+            slow.updatePositions(time);
+        }
+        for (long time = 0; time <= 240; time += 10) {
+            fast.updatePositions(time);
+        }
+        assertArrayEquals(slow.getPoints(), fast.getPoints(), 0f);
+    }
+
+    private BadgeAnimator create() {
+        final BadgeAnimator[] result = new BadgeAnimator[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap snapshot = BadgeBitmapPool.acquire(BADGE_SIZE, BADGE_SIZE);
+                snapshot.eraseColor(0xFFE84E40);
+                result[0] = BadgeAnimator.create(snapshot, new PointF(100, 100), null,
+                        BadgeAnimator.DEFAULT_PARTICLES_PER_SIDE, BadgeAnimator.DEFAULT_DURATION);
+            }
+        });
+        return result[0];
+    }
+}
@@ -0,0 +1,142 @@
+package com.javayhu.kiss.views.common;
+
+import android.graphics.Bitmap;
+import android.os.Debug;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 连续消除badge时快照位图的分配情况：位图池+一次getPixels，和原来每次createBitmap+逐个getPixel+recycle对比
+ * <p>
+ * Java对象个数用AllocationCounter统计，native内存看Debug.getNativeHeapAllocatedSize的峰值增量，
+ * 结果输出到logcat：adb logcat -s BadgeBitmapPoolBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeBitmapPoolBenchmark {
+
+    private static final String TAG = "BadgeBitmapPoolBenchmark";
+    private static final int SIZE = 48;
+    private static final int DISMISSALS = 200;
+    private static final int PARTICLES_PER_SIDE = BadgeAnimator.DEFAULT_PARTICLES_PER_SIDE;
+
+    private long mNativeStart;
+    private long mNativePeak;
+    private int mColorSum;
+
+    @After
+    public void tearDown() {
+        BadgeBitmapPool.clear();
+    }
+
+    @Test
+    public void pooledSnapshotsDoNotAllocate() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap first = BadgeBitmapPool.acquire(SIZE, SIZE);
+                BadgeBitmapPool.release(first);
+                //池中的位图足够大，不同大小的快照也复用同一个
+                Bitmap reused = BadgeBitmapPool.acquire(SIZE / 2, SIZE);
+                assertSame(first, reused);
+                BadgeBitmapPool.release(reused);
+            }
+        });
+
+        int pooled = AllocationCounter.count(new Runnable() {
+            @Override
+            public void run() {
+                runPooled();
+            }
+        });
+        long pooledNative = mNativePeak - mNativeStart;
+        long pooledTime = time(new Runnable() {
+            @Override
+            public void run() {
+                runPooled();
+            }
+        });
+
+        int legacy = AllocationCounter.count(new Runnable() {
+            @Override
+            public void run() {
+                runLegacy();
+            }
+        });
+        long legacyNative = mNativePeak - mNativeStart;
+        long legacyTime = time(new Runnable() {
+            @Override
+            public void run() {
+                runLegacy();
+            }
+        });
+
+        Log.i(TAG, "pool: " + pooled + " objects, native peak +" + pooledNative + " bytes, "
+                + pooledTime / DISMISSALS + " ns/dismissal");
+        Log.i(TAG, "legacy: " + legacy + " objects, native peak +" + legacyNative + " bytes, "
+                + legacyTime / DISMISSALS + " ns/dismissal");
+        assertEquals(0, pooled);
+    }
+
+    private void runPooled() {
+        startNative();
+        for (int i = 0; i < DISMISSALS; i++) {
+            Bitmap snapshot = BadgeBitmapPool.acquire(SIZE, SIZE);
+            snapshot.eraseColor(0xFFE84E40);
+            int[] pixels = BadgeBitmapPool.getPixels(snapshot);
+            float fragmentSize = SIZE / (float) PARTICLES_PER_SIDE;
+            for (int row = 0; row < PARTICLES_PER_SIDE; row++) {
+                for (int column = 0; column < PARTICLES_PER_SIDE; column++) {
+                    mColorSum += pixels[(int) (row * fragmentSize) * SIZE + (int) (column * fragmentSize)];
+                }
+            }
+            updateNative();
+            BadgeBitmapPool.release(snapshot);
+        }
+    }
+
+    //原来的实现：每次消除都创建一个新位图，每个碎片调用一次getPixel，用完立即recycle
+    private void runLegacy() {
+        startNative();
+        for (int i = 0; i < DISMISSALS; i++) {
+            Bitmap snapshot = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+            snapshot.eraseColor(0xFFE84E40);
+            float fragmentSize = SIZE / (float) PARTICLES_PER_SIDE;
+            for (int row = 0; row < PARTICLES_PER_SIDE; row++) {
+                for (int column = 0; column < PARTICLES_PER_SIDE; column++) {
+                    mColorSum += snapshot.getPixel((int) (column * fragmentSize), (int) (row * fragmentSize));
+                }
+            }
+            updateNative();
+            snapshot.recycle();
+        }
+    }
+
+    private void startNative() {
+        mNativeStart = Debug.getNativeHeapAllocatedSize();
+        mNativePeak = mNativeStart;
+    }
+
+    private void updateNative() {
+        mNativePeak = Math.max(mNativePeak, Debug.getNativeHeapAllocatedSize());
+    }
+
+    private static long time(final Runnable action) {
+        final long[] elapsed = new long[1];
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                action.run();
+                elapsed[0] = System.nanoTime() - start;
+            }
+        });
+        return elapsed[0];
+    }
+}
@@ -0,0 +1,101 @@
+package com.javayhu.kiss.views.common;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 渲染结果的缓存：相同的文字和底图直接返回缓存，底图内容变化时重新渲染，缓存不会让底图无法回收；渲染使用自己的Paint
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeBitmapRendererTest {
+
+    private static final int BASE_SIZE = 96;
+
+    private BadgeBitmapRenderer mRenderer;
+
+    @Before
+    public void setUp() {
+        mRenderer = new BadgeBitmapRenderer(BadgeFactory.circleStyle(InstrumentationRegistry.getTargetContext()));
+    }
+
+    @Test
+    public void sameTextIsCached() {
+        Bitmap five = mRenderer.render(5);
+        assertSame(five, mRenderer.render(5));
+        assertSame(five, mRenderer.render("5"));
+        assertNotSame(five, mRenderer.render(6));
+        assertEquals(2, mRenderer.getCacheSize());
+    }
+
+    @Test
+    public void sameBaseIsCached() {
+        Bitmap base = createBase();
+        Bitmap result = mRenderer.render(base, 3);
+        assertEquals(BASE_SIZE, result.getWidth());
+        assertSame(result, mRenderer.render(base, 3));
+        assertNotSame(result, mRenderer.render(createBase(), 3));
+        assertNotSame(result, mRenderer.render(3));
+    }
+
+    @Test
+    public void modifiedBaseIsRenderedAgain() {
+        Bitmap base = createBase();
+        Bitmap result = mRenderer.render(base, 3);
+        base.eraseColor(Color.BLUE);
+        Bitmap updated = mRenderer.render(base, 3);
+        assertNotSame(result, updated);
+        assertEquals(Color.BLUE, updated.getPixel(0, BASE_SIZE - 1));
+    }
+
+    @Test
+    public void drawsWithOwnPaints() {
+        //样式中共用的Paint被其他线程上的badge修改时，渲染结果不受影响
+        BadgeStyle style = mRenderer.getStyle();
+        int color = style.backgroundPaint.getColor();
+        style.backgroundPaint.setColor(Color.BLUE);
+        try {
+            Bitmap result = mRenderer.render(8);
+            assertEquals(style.getBackgroundColor(), result.getPixel(result.getWidth() / 2, 2));
+        } finally {
+            style.backgroundPaint.setColor(color);
+        }
+    }
+
+    @Test
+    public void cacheDoesNotKeepBaseAlive() throws InterruptedException {
+        WeakReference<Bitmap> base = renderWithTemporaryBase();
+        for (int i = 0; i < 20 && base.get() != null; i++) {
+            Runtime.getRuntime().gc();
+            System.runFinalization();
+            Thread.sleep(50);
+        }
+        assertNull(base.get());
+        assertEquals(1, mRenderer.getCacheSize());
+    }
+
+    //底图只在这个方法中被强引用
+    private WeakReference<Bitmap> renderWithTemporaryBase() {
+        Bitmap base = createBase();
+        mRenderer.render(base, 7);
+        return new WeakReference<>(base);
+    }
+
+    private static Bitmap createBase() {
+        Bitmap base = Bitmap.createBitmap(BASE_SIZE, BASE_SIZE, Bitmap.Config.ARGB_8888);
+        base.eraseColor(Color.GREEN);
+        return base;
+    }
+}
@@ -0,0 +1,169 @@
+package com.javayhu.kiss.views.common;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.Choreographer;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 多个线程同时修改计数，检查最终的计数没有丢失修改，并且绑定的badge每一帧最多刷新一次
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeCounterRegistryStressTest {
+
+    private static final String ID_INCREMENT = "stress-increment";
+    private static final String ID_MIXED = "stress-mixed";
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 20000;
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private final BadgeCounterRegistry mRegistry = BadgeCounterRegistry.getInstance();
+
+    private CountingBadgeView mBadge;
+    private volatile boolean mCountingFrames;
+    private int mFrames;
+
+    @After
+    public void tearDown() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mRegistry.remove(ID_INCREMENT);
+                mRegistry.remove(ID_MIXED);
+            }
+        });
+    }
+
+    @Test
+    public void concurrentUpdatesAreNotLost() throws InterruptedException {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                FrameLayout container = new FrameLayout(context);
+                View target = new View(context);
+                container.addView(target);
+                mBadge = new CountingBadgeView(context);
+                mBadge.bindTarget(target);
+                mRegistry.bind(ID_INCREMENT, mBadge);
+                mBadge.mUpdates = 0;
+                startCountingFrames();
+            }
+        });
+
+        //每个线程对ID_INCREMENT加OPERATIONS次，对ID_MIXED加2减1，最后都是THREADS * OPERATIONS
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < OPERATIONS; i++) {
+                            mRegistry.increment(ID_INCREMENT);
+                            mRegistry.add(ID_MIXED, 2);
+                            mRegistry.decrement(ID_MIXED);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        final int expected = THREADS * OPERATIONS;
+        assertEquals(expected, mRegistry.get(ID_INCREMENT));
+        assertEquals(expected, mRegistry.get(ID_MIXED));
+
+        //等待最后一次修改分发到badge
+        final int[] shown = new int[1];
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MILLIS;
+        do {
+            SystemClock.sleep(16);
+            AllocationCounter.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    shown[0] = mBadge.getBadgeNumber();
+                }
+            });
+        } while (shown[0] != expected && SystemClock.uptimeMillis() < deadline);
+        assertEquals(expected, shown[0]);
+
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mCountingFrames = false;
+                //frame回调的先后顺序不确定，允许多一帧
+                assertTrue("updates: " + mBadge.mUpdates + ", frames: " + mFrames,
+                        mBadge.mUpdates <= mFrames + 1);
+            }
+        });
+    }
+
+    @Test
+    public void setIsLastWriteWins() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            final int value = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < OPERATIONS; i++) {
+                        mRegistry.set(ID_MIXED, value);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        mRegistry.set(ID_MIXED, -1);
+        assertEquals(-1, mRegistry.get(ID_MIXED));
+    }
+
+    //主线程
+    private void startCountingFrames() {
+        mCountingFrames = true;
+        mFrames = 0;
+        Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                if (mCountingFrames) {
+                    mFrames++;
+                    Choreographer.getInstance().postFrameCallback(this);
+                }
+            }
+        });
+    }
+
+    private static class CountingBadgeView extends DraggableBadgeView {
+
+        int mUpdates;
+
+        CountingBadgeView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public Badge setBadgeNumber(int badgeNumber) {
+            mUpdates++;
+            return super.setBadgeNumber(badgeNumber);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.javayhu.kiss.views.common;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 500个带badge的item组成的网格，BadgeView(包装FrameLayout)和BadgeDrawable(ViewOverlay)的层级深度、view个数和measure/layout耗时对比
+ * <p>
+ * 结果输出到logcat：adb logcat -s BadgeDrawableBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeDrawableBenchmark {
+
+    private static final String TAG = "BadgeDrawableBenchmark";
+    private static final int ROWS = 50;
+    private static final int COLUMNS = 10;
+    private static final int ITEM_SIZE = 40;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void grid() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+
+                LayoutCountingGrid plain = new LayoutCountingGrid(context);
+                long plainTime = measureAndLayout(plain);
+
+                LayoutCountingGrid views = new LayoutCountingGrid(context);
+                for (View item : views.mItems) {
+                    BadgeFactory.create(context).setBadgeCount(5).bind(item);
+                }
+                long viewsTime = measureAndLayout(views);
+
+                LayoutCountingGrid drawables = new LayoutCountingGrid(context);
+                for (View item : drawables.mItems) {
+                    BadgeDrawable.obtain(item).setBadgeCount(5);
+                }
+                long drawablesTime = measureAndLayout(drawables);
+
+                Log.i(TAG, "no badge: depth " + depth(plain) + ", " + count(plain) + " views, measure+layout "
+                        + plainTime / 1000 + " us");
+                Log.i(TAG, "BadgeView: depth " + depth(views) + ", " + count(views) + " views, measure+layout "
+                        + viewsTime / 1000 + " us");
+                Log.i(TAG, "BadgeDrawable: depth " + depth(drawables) + ", " + count(drawables) + " views, measure+layout "
+                        + drawablesTime / 1000 + " us");
+                assertEquals(depth(plain) + 1, depth(views));
+                assertEquals(depth(plain), depth(drawables));
+                assertEquals(count(plain), count(drawables));
+
+                //修改数字只刷新overlay
+                drawables.mRequestLayoutCount = 0;
+                for (View item : drawables.mItems) {
+                    BadgeDrawable.findBadge(item).setBadgeCount(6);
+                }
+                assertEquals(0, drawables.mRequestLayoutCount);
+            }
+        });
+    }
+
+    //每一轮都强制所有view重新measure，取最快的一轮
+    private static long measureAndLayout(ViewGroup grid) {
+        int width = View.MeasureSpec.makeMeasureSpec(COLUMNS * ITEM_SIZE * 2, View.MeasureSpec.EXACTLY);
+        int height = View.MeasureSpec.makeMeasureSpec(ROWS * ITEM_SIZE * 2, View.MeasureSpec.EXACTLY);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            forceLayout(grid);
+            long start = System.nanoTime();
+            grid.measure(width, height);
+            grid.layout(0, 0, grid.getMeasuredWidth(), grid.getMeasuredHeight());
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static void forceLayout(View view) {
+        view.forceLayout();
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                forceLayout(group.getChildAt(i));
+            }
+        }
+    }
+
+    private static int depth(View view) {
+        int depth = 0;
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                depth = Math.max(depth, depth(group.getChildAt(i)));
+            }
+        }
+        return depth + 1;
+    }
+
+    private static int count(View view) {
+        int count = 1;
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                count += count(group.getChildAt(i));
+            }
+        }
+        return count;
+    }
+
+    //ROWS行，每行COLUMNS个item
+    private static class LayoutCountingGrid extends LinearLayout {
+
+        final View[] mItems = new View[ROWS * COLUMNS];
+        int mRequestLayoutCount;
+
+        LayoutCountingGrid(Context context) {
+            super(context);
+            setOrientation(VERTICAL);
+            for (int r = 0; r < ROWS; r++) {
+                LinearLayout row = new LinearLayout(context);
+                row.setOrientation(HORIZONTAL);
+                for (int c = 0; c < COLUMNS; c++) {
+                    View item = new View(context);
+                    row.addView(item, new LinearLayout.LayoutParams(ITEM_SIZE, ITEM_SIZE));
+                    mItems[r * COLUMNS + c] = item;
+                }
+                addView(row, new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT,
+                        LinearLayout.LayoutParams.WRAP_CONTENT));
+            }
+        }
+
+        @Override
+        public void requestLayout() {
+            mRequestLayoutCount++;
+            super.requestLayout();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.javayhu.kiss.views.common;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * 样式被挤出缓存或者缓存被清空之后，仍然持有旧缓存的badge可以继续绘制
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeGlyphCacheTest {
+
+    private static final int SIZE = 100;
+    private static final int STYLES = 16;
+
+    @After
+    public void tearDown() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                BadgeGlyphCache.clear();
+            }
+        });
+    }
+
+    @Test
+    public void evictedCacheStillDraws() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+                Paint paint = new Paint();
+                paint.setTextSize(20);
+                BadgeGlyphCache cache = BadgeGlyphCache.obtain(paint);
+                cache.draw(canvas, '7', 10, 50, paint);
+
+                //超过MAX_STYLE_COUNT个样式，最早的样式被挤出
+                Paint other = new Paint();
+                for (int i = 0; i < STYLES; i++) {
+                    other.setTextSize(21 + i);
+                    BadgeGlyphCache.obtain(other).draw(canvas, '1', 10, 50, other);
+                }
+                assertNotSame(cache, BadgeGlyphCache.obtain(paint));
+                //已经创建的字形和新的字形都可以绘制，位图没有被recycle
+                cache.draw(canvas, '7', 10, 50, paint);
+                cache.draw(canvas, '8', 10, 50, paint);
+
+                BadgeGlyphCache.clear();
+                cache.draw(canvas, '7', 10, 50, paint);
+            }
+        });
+    }
+}
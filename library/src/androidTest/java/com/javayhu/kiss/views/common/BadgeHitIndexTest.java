@@ -0,0 +1,195 @@
+package com.javayhu.kiss.views.common;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * BadgeHitIndex的查找结果，以及DraggableBadgeView.dispatchTouchEvent按照索引决定哪个badge开始拖拽
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeHitIndexTest {
+
+    private static final float RADIUS = 10;
+    private static final int SIZE = 400;
+
+    private long mEventTime;
+
+    @Test
+    public void overlappingBadgesTopmostWins() {
+        BadgeHitIndex index = new BadgeHitIndex();
+        BadgeHitIndex.Entry bottom = add(index, 100, 100);
+        BadgeHitIndex.Entry top = add(index, 100, 100);
+        assertSame(top, find(index, 100, 100));
+        assertSame(top, find(index, 105, 100));
+
+        //位置更新不会改变上下顺序
+        index.update(bottom, 101, 100, RADIUS);
+        index.update(bottom, 100, 100, RADIUS);
+        assertSame(top, find(index, 100, 100));
+
+        //部分重叠时距离近的优先
+        BadgeHitIndex.Entry near = add(index, 112, 100);
+        assertSame(near, find(index, 108, 100));
+        assertSame(top, find(index, 104, 100));
+    }
+
+    @Test
+    public void badgeSpanningCellBoundaryIsFound() {
+        BadgeHitIndex index = new BadgeHitIndex();
+        //格子的边长是2 * RADIUS = 20，badge中心在(19, 19)，触摸半径跨到右下方的格子
+        BadgeHitIndex.Entry entry = add(index, 19, 19);
+        assertSame(entry, find(index, 21, 21));
+        assertSame(entry, find(index, 26, 19));
+        assertSame(entry, find(index, 12, 12));
+
+        //负坐标一侧的格子
+        BadgeHitIndex.Entry negative = add(index, -1, -1);
+        assertSame(negative, find(index, 3, 3));
+        assertSame(negative, find(index, -8, -1));
+    }
+
+    @Test
+    public void movedOrRemovedBadgeIsCleared() {
+        BadgeHitIndex index = new BadgeHitIndex();
+        BadgeHitIndex.Entry entry = add(index, 50, 50);
+        index.update(entry, 300, 300, RADIUS);
+        assertNull(find(index, 50, 50));
+        assertSame(entry, find(index, 300, 300));
+        assertEquals(1, index.size());
+
+        index.remove(entry);
+        assertFalse(entry.isRegistered());
+        assertEquals(0, index.size());
+        assertNull(find(index, 300, 300));
+
+        //半径为0等于移除
+        add(index, 50, 50);
+        BadgeHitIndex.Entry hidden = add(index, 50, 50);
+        index.update(hidden, 50, 50, 0);
+        assertFalse(hidden.isRegistered());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void missOutsideAllCells() {
+        BadgeHitIndex index = new BadgeHitIndex();
+        assertNull(find(index, 0, 0));
+        add(index, 50, 50);
+        add(index, 200, 50);
+        assertNull(find(index, 1000, 1000));
+        assertNull(find(index, 125, 50));
+        assertNull(find(index, 50, 50 + RADIUS + 1));
+    }
+
+    @Test
+    public void resultIsCachedOnlyForTheSameEvent() {
+        BadgeHitIndex index = new BadgeHitIndex();
+        BadgeHitIndex.Entry entry = add(index, 50, 50);
+        long time = ++mEventTime;
+        assertSame(entry, index.findTarget(50, 50, time));
+
+        //直接修改记录不会经过update，同一个事件仍然返回缓存的结果
+        entry.radius = 0;
+        assertSame(entry, index.findTarget(50, 50, time));
+        //下一个事件重新查找
+        assertNull(index.findTarget(50, 50, time + 1));
+        //同一个时间但位置不同也不是同一个事件
+        entry.radius = RADIUS;
+        assertSame(entry, index.findTarget(51, 50, time + 1));
+    }
+
+    @Test
+    public void dispatchStartsDragOnTopmostBadgeOnly() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                FrameLayout container = new FrameLayout(context);
+                View bottomTarget = new View(context);
+                View topTarget = new View(context);
+                container.addView(bottomTarget, new FrameLayout.LayoutParams(SIZE, SIZE));
+                container.addView(topTarget, new FrameLayout.LayoutParams(SIZE, SIZE));
+                final int[] touches = new int[1];
+                topTarget.setOnTouchListener(new View.OnTouchListener() {
+                    @Override
+                    public boolean onTouch(View v, MotionEvent event) {
+                        touches[0]++;
+                        return true;
+                    }
+                });
+                //两个badge的大小和位置相同，完全叠在一起，后添加的在上面
+                DraggableBadgeView bottom = (DraggableBadgeView) DraggableBadgeView.obtain(bottomTarget);
+                DraggableBadgeView top = (DraggableBadgeView) DraggableBadgeView.obtain(topTarget);
+                final int[] started = new int[2];
+                bottom.setBadgeNumber(3).setOnDragStateChangedListener(counter(started, 0));
+                top.setBadgeNumber(5).setOnDragStateChangedListener(counter(started, 1));
+
+                int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+                container.measure(spec, spec);
+                container.layout(0, 0, SIZE, SIZE);
+                Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+                bottom.onDraw(canvas);
+                top.onDraw(canvas);
+                assertTrue(top.mHitEntry.isRegistered());
+                assertSame(top.mHitEntry.index, bottom.mHitEntry.index);
+
+                long downTime = SystemClock.uptimeMillis();
+                dispatch(container, downTime, MotionEvent.ACTION_DOWN, top.mBadgeCenter.x, top.mBadgeCenter.y);
+                dispatch(container, downTime, MotionEvent.ACTION_CANCEL, top.mBadgeCenter.x, top.mBadgeCenter.y);
+                assertEquals(0, started[0]);
+                assertEquals(1, started[1]);
+                assertEquals(0, touches[0]);
+
+                //不在badge上的按下事件传给下面的view
+                dispatch(container, downTime + 100, MotionEvent.ACTION_DOWN, 1, SIZE - 1);
+                assertEquals(1, touches[0]);
+                assertEquals(0, started[0]);
+                assertEquals(1, started[1]);
+            }
+        });
+    }
+
+    private BadgeHitIndex.Entry add(BadgeHitIndex index, float x, float y) {
+        BadgeHitIndex.Entry entry = new BadgeHitIndex.Entry();
+        index.update(entry, x, y, RADIUS);
+        return entry;
+    }
+
+    //每次查找都是一个新的按下事件
+    private BadgeHitIndex.Entry find(BadgeHitIndex index, float x, float y) {
+        return index.findTarget(x, y, ++mEventTime);
+    }
+
+    private static void dispatch(View view, long downTime, int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(downTime, downTime, action, x, y, 0);
+        view.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    private static Badge.OnDragStateChangedListener counter(final int[] started, final int slot) {
+        return new Badge.OnDragStateChangedListener() {
+            @Override
+            public void onDragStateChanged(int dragState, Badge badge, View targetView) {
+                if (dragState == STATE_START) {
+                    started[slot]++;
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,168 @@
+package com.javayhu.kiss.views.common;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 同样N个target，用DraggableBadgeView和BadgeLayer分别加badge，比较层级中的view个数、
+ * 一次measure/layout的耗时和更新badge时的requestLayout次数；以及target被回收之后记录会被移除
+ * <p>
+ * 耗时输出到logcat：adb logcat -s BadgeLayerTest
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeLayerTest {
+
+    private static final String TAG = "BadgeLayerTest";
+    private static final int TARGETS = 50;
+    private static final int SIZE = 1000;
+    private static final int TARGET_SIZE = 40;
+    private static final int GC_ATTEMPTS = 50;
+
+    @Test
+    public void layerAddsOneViewForAllBadges() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+
+                LayoutCountingFrameLayout views = createContainer(context);
+                for (int i = 0; i < TARGETS; i++) {
+                    DraggableBadgeView.obtain(views.getChildAt(i)).setBadgeNumber(i + 1);
+                }
+                long viewsLayout = measureAndLayout(views);
+
+                LayoutCountingFrameLayout layered = createContainer(context);
+                BadgeLayer layer = new BadgeLayer(context);
+                layered.addView(layer, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT,
+                        FrameLayout.LayoutParams.MATCH_PARENT));
+                for (int i = 0; i < TARGETS; i++) {
+                    layer.addBadge(layered.getChildAt(i)).setBadgeNumber(i + 1);
+                }
+                long layerLayout = measureAndLayout(layered);
+
+                assertEquals(TARGETS * 2, views.getChildCount());
+                assertEquals(TARGETS + 1, layered.getChildCount());
+                assertEquals(TARGETS, layer.getBadgeCount());
+
+                //修改数字只需要重绘，不应该触发layout
+                views.mRequestLayoutCount = 0;
+                layered.mRequestLayoutCount = 0;
+                for (int i = 0; i < TARGETS; i++) {
+                    DraggableBadgeView.findBadge(views.getChildAt(i)).setBadgeNumber(i + 100);
+                    layer.findBadge(layered.getChildAt(i)).setBadgeNumber(i + 100);
+                }
+                assertEquals(0, views.mRequestLayoutCount);
+                assertEquals(0, layered.mRequestLayoutCount);
+
+                Log.i(TAG, "DraggableBadgeView: " + views.getChildCount() + " views, measure+layout " + viewsLayout + " ns");
+                Log.i(TAG, "BadgeLayer: " + layered.getChildCount() + " views, measure+layout " + layerLayout + " ns");
+            }
+        });
+    }
+
+    @Test
+    public void collectedTargetIsPruned() {
+        final BadgeLayer[] layer = new BadgeLayer[1];
+        final WeakReference<?>[] target = new WeakReference<?>[1];
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                layer[0] = new BadgeLayer(context);
+                target[0] = addDetachedBadge(context, layer[0]);
+                assertEquals(1, layer[0].getBadgeCount());
+            }
+        });
+
+        for (int i = 0; i < GC_ATTEMPTS && target[0].get() != null; i++) {
+            Runtime.getRuntime().gc();
+            System.runFinalization();
+            SystemClock.sleep(10);
+        }
+        assertNull("target is still reachable", target[0].get());
+
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                layer[0].onPreDraw();
+                assertEquals(0, layer[0].getBadgeCount());
+            }
+        });
+    }
+
+    @Test
+    public void reboundTargetKeepsItsRecord() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                BadgeLayer layer = new BadgeLayer(context);
+                View target = new View(context);
+                Badge badge = layer.addBadge(target).setBadgeNumber(3);
+                layer.onPreDraw();
+                assertSame(badge, layer.addBadge(target));
+                assertEquals(1, layer.getBadgeCount());
+            }
+        });
+    }
+
+    //target只在这个方法里被强引用，返回之后只剩BadgeLayer中的弱引用
+    private static WeakReference<View> addDetachedBadge(Context context, BadgeLayer layer) {
+        FrameLayout container = new FrameLayout(context);
+        View target = new View(context);
+        container.addView(target);
+        layer.addBadge(target).setBadgeNumber(7);
+        container.removeView(target);
+        return new WeakReference<>(target);
+    }
+
+    //TARGETS个target排成一行行的网格
+    private static LayoutCountingFrameLayout createContainer(Context context) {
+        LayoutCountingFrameLayout container = new LayoutCountingFrameLayout(context);
+        int columns = SIZE / TARGET_SIZE;
+        for (int i = 0; i < TARGETS; i++) {
+            FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(TARGET_SIZE, TARGET_SIZE);
+            params.leftMargin = i % columns * TARGET_SIZE;
+            params.topMargin = i / columns * TARGET_SIZE;
+            container.addView(new View(context), params);
+        }
+        return container;
+    }
+
+    private static long measureAndLayout(View container) {
+        int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+        long start = System.nanoTime();
+        container.measure(spec, spec);
+        container.layout(0, 0, SIZE, SIZE);
+        return System.nanoTime() - start;
+    }
+
+    private static class LayoutCountingFrameLayout extends FrameLayout {
+
+        int mRequestLayoutCount;
+
+        LayoutCountingFrameLayout(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void requestLayout() {
+            mRequestLayoutCount++;
+            super.requestLayout();
+        }
+    }
+}
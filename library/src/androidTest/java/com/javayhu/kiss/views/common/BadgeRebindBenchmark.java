@@ -0,0 +1,128 @@
+package com.javayhu.kiss.views.common;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.View;
+import android.widget.LinearLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 模拟列表滚动时复用的行反复绑定badge：第一次绑定会包装target，之后每次重新绑定都不应该再触发requestLayout
+ * <p>
+ * 每行是一个LinearLayout(不是FrameLayout，第一次绑定时需要包装target)，统计行上收到的requestLayout次数，
+ * 结果输出到logcat：adb logcat -s BadgeRebindBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeRebindBenchmark {
+
+    private static final String TAG = "BadgeRebindBenchmark";
+    private static final int ROWS = 10;
+    private static final int SCROLLS = 100;
+    private static final int SIZE = 200;
+
+    @Test
+    public void rebindDraggableBadge() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                LayoutCountingRow[] rows = createRows(context);
+                for (LayoutCountingRow row : rows) {
+                    DraggableBadgeView.obtain(row.mTarget).setBadgeNumber(1);
+                    //包装target之后badge是post到容器里的，行没有attach时post不会执行，再绑定一次直接加到容器里
+                    DraggableBadgeView.obtain(row.mTarget);
+                }
+                int firstBind = layoutRows(rows);
+
+                long start = System.nanoTime();
+                for (int scroll = 0; scroll < SCROLLS; scroll++) {
+                    for (LayoutCountingRow row : rows) {
+                        DraggableBadgeView.obtain(row.mTarget).setBadgeNumber(scroll + 2);
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+                int rebind = layoutRows(rows);
+
+                Log.i(TAG, "DraggableBadgeView first bind: " + firstBind / (float) ROWS + " requestLayout/bind");
+                Log.i(TAG, "DraggableBadgeView rebind: " + rebind / (float) (ROWS * SCROLLS) + " requestLayout/bind, "
+                        + elapsed / (ROWS * SCROLLS) + " ns/bind");
+                assertEquals(0, rebind);
+            }
+        });
+    }
+
+    @Test
+    public void rebindBadgeView() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                LayoutCountingRow[] rows = createRows(context);
+                for (LayoutCountingRow row : rows) {
+                    BadgeFactory.create(context).setBadgeCount(1).bind(row.mTarget);
+                }
+                int firstBind = layoutRows(rows);
+
+                long start = System.nanoTime();
+                for (int scroll = 0; scroll < SCROLLS; scroll++) {
+                    for (LayoutCountingRow row : rows) {
+                        BadgeView.findBadge(row.mTarget).bind(row.mTarget).setBadgeCount(scroll + 2);
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+                int rebind = layoutRows(rows);
+
+                Log.i(TAG, "BadgeView first bind: " + firstBind / (float) ROWS + " requestLayout/bind");
+                Log.i(TAG, "BadgeView rebind: " + rebind / (float) (ROWS * SCROLLS) + " requestLayout/bind, "
+                        + elapsed / (ROWS * SCROLLS) + " ns/bind");
+                assertEquals(0, rebind);
+            }
+        });
+    }
+
+    private static LayoutCountingRow[] createRows(Context context) {
+        LayoutCountingRow[] rows = new LayoutCountingRow[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = new LayoutCountingRow(context);
+        }
+        layoutRows(rows);
+        return rows;
+    }
+
+    //返回上次layout之后所有行收到的requestLayout次数，并重新layout清掉标记
+    private static int layoutRows(LayoutCountingRow[] rows) {
+        int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+        int count = 0;
+        for (LayoutCountingRow row : rows) {
+            count += row.mRequestLayoutCount;
+            row.measure(spec, spec);
+            row.layout(0, 0, SIZE, SIZE);
+            row.mRequestLayoutCount = 0;
+        }
+        return count;
+    }
+
+    private static class LayoutCountingRow extends LinearLayout {
+
+        final View mTarget;
+        int mRequestLayoutCount;
+
+        LayoutCountingRow(Context context) {
+            super(context);
+            mTarget = new View(context);
+            addView(mTarget, new LinearLayout.LayoutParams(SIZE / 2, SIZE / 2));
+        }
+
+        @Override
+        public void requestLayout() {
+            mRequestLayoutCount++;
+            super.requestLayout();
+        }
+    }
+}
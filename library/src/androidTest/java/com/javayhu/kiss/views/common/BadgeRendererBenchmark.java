@@ -0,0 +1,145 @@
+package com.javayhu.kiss.views.common;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 在一个Canvas上批量绘制很多badge，BadgeRenderer(缓存文字测量、颜色没变时不设置Paint)和原来每个badge
+ * 每次绘制都设置颜色、String.valueOf、getTextBounds的做法对比
+ * <p>
+ * 相邻的badge按样式分组，和BadgeLayer中的情况一样，结果输出到logcat：adb logcat -s BadgeRendererBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeRendererBenchmark {
+
+    private static final String TAG = "BadgeRendererBenchmark";
+    private static final int BADGES = 500;
+    private static final int STYLES = 5;
+    private static final int CANVAS_SIZE = 1000;
+    private static final int FRAMES = 100;
+    private static final float TEXT_SIZE = 24;
+    private static final float PADDING = 8;
+    private static final float ROUND_RECT_RADIUS = 20;
+    private static final int[] BACKGROUND_COLORS = {0xFFE84E40, 0xFF2196F3, 0xFF4CAF50, 0xFFFF9800, 0xFF9C27B0};
+
+    private final Canvas mCanvas = new Canvas(Bitmap.createBitmap(CANVAS_SIZE, CANVAS_SIZE, Bitmap.Config.ARGB_8888));
+    private final BadgeRenderer mRenderer = new BadgeRenderer();
+    private final char[][] mTexts = new char[BADGES][BadgeNumberFormatter.MAX_LENGTH];
+    private final int[] mTextLengths = new int[BADGES];
+    private final int[] mNumbers = new int[BADGES];
+    private final BadgeRenderer.TextMetrics[] mMetrics = new BadgeRenderer.TextMetrics[BADGES];
+    private final RectF mBounds = new RectF();
+
+    private final Paint mLegacyBackgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mLegacyNumberPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Rect mLegacyTextBounds = new Rect();
+
+    @Test
+    public void batchDraw() {
+        BadgeNumberFormatter formatter = BadgeNumberFormatter.capped(99);
+        for (int i = 0; i < BADGES; i++) {
+            mNumbers[i] = i % 150;
+            mTextLengths[i] = formatter.format(mNumbers[i], mTexts[i]);
+            mMetrics[i] = new BadgeRenderer.TextMetrics();
+        }
+        mLegacyNumberPaint.setTextAlign(Paint.Align.CENTER);
+        mLegacyNumberPaint.setFakeBoldText(true);
+
+        int rendererAllocations = AllocationCounter.count(new Runnable() {
+            @Override
+            public void run() {
+                for (int frame = 0; frame < FRAMES; frame++) {
+                    drawRenderer();
+                }
+            }
+        });
+        int legacyAllocations = AllocationCounter.count(new Runnable() {
+            @Override
+            public void run() {
+                for (int frame = 0; frame < FRAMES; frame++) {
+                    drawLegacy();
+                }
+            }
+        });
+        final long[] elapsed = new long[2];
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                for (int frame = 0; frame < FRAMES; frame++) {
+                    drawRenderer();
+                }
+                elapsed[0] = System.nanoTime() - start;
+                start = System.nanoTime();
+                for (int frame = 0; frame < FRAMES; frame++) {
+                    drawLegacy();
+                }
+                elapsed[1] = System.nanoTime() - start;
+            }
+        });
+
+        Log.i(TAG, "BadgeRenderer: " + elapsed[0] / FRAMES / 1000 + " us/frame, "
+                + rendererAllocations / FRAMES + " objects/frame for " + BADGES + " badges");
+        Log.i(TAG, "legacy: " + elapsed[1] / FRAMES / 1000 + " us/frame, "
+                + legacyAllocations / FRAMES + " objects/frame for " + BADGES + " badges");
+        assertEquals(0, rendererAllocations);
+    }
+
+    private void drawRenderer() {
+        mRenderer.setTextSize(TEXT_SIZE);
+        for (int i = 0; i < BADGES; i++) {
+            mRenderer.setColors(backgroundColor(i), 0xFFFFFFFF, 255);
+            mRenderer.measureText(mTexts[i], mTextLengths[i], TEXT_SIZE, mMetrics[i]);
+            Rect textBounds = mMetrics[i].bounds;
+            BadgeRenderer.getAutoBounds(mTextLengths[i], centerX(i), centerY(i), textBounds, PADDING, mBounds);
+            mRenderer.drawAutoBadge(mCanvas, mTexts[i], mTextLengths[i], mBounds, textBounds, ROUND_RECT_RADIUS);
+        }
+    }
+
+    //原来DraggableBadgeView.drawBadge的做法：每次绘制都重新设置Paint、生成字符串并测量
+    private void drawLegacy() {
+        for (int i = 0; i < BADGES; i++) {
+            mLegacyBackgroundPaint.setColor(backgroundColor(i));
+            mLegacyNumberPaint.setColor(0xFFFFFFFF);
+            mLegacyNumberPaint.setTextSize(TEXT_SIZE);
+            String text = mNumbers[i] > 99 ? "99+" : String.valueOf(mNumbers[i]);
+            mLegacyNumberPaint.getTextBounds(text, 0, text.length(), mLegacyTextBounds);
+            float centerX = centerX(i);
+            float centerY = centerY(i);
+            if (text.length() == 1) {
+                float radius = Math.max(mLegacyTextBounds.height(), mLegacyTextBounds.width()) / 2f + PADDING;
+                mCanvas.drawCircle(centerX, centerY, radius, mLegacyBackgroundPaint);
+            } else {
+                mBounds.set(centerX - mLegacyTextBounds.width() / 2f - PADDING,
+                        centerY - mLegacyTextBounds.height() / 2f - PADDING / 1.2f,
+                        centerX + mLegacyTextBounds.width() / 2f + PADDING,
+                        centerY + mLegacyTextBounds.height() / 2f + PADDING / 1.2f);
+                mCanvas.drawRoundRect(mBounds, ROUND_RECT_RADIUS, ROUND_RECT_RADIUS, mLegacyBackgroundPaint);
+            }
+            mCanvas.drawText(text, centerX, centerY + mLegacyTextBounds.height() / 2f, mLegacyNumberPaint);
+        }
+    }
+
+    //每BADGES / STYLES个相邻的badge使用同一种样式
+    private static int backgroundColor(int index) {
+        return BACKGROUND_COLORS[index * STYLES / BADGES];
+    }
+
+    private static float centerX(int index) {
+        return 25 + index % 20 * 50;
+    }
+
+    private static float centerY(int index) {
+        return 25 + index / 20 * 40;
+    }
+}
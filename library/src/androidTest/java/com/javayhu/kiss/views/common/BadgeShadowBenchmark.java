@@ -0,0 +1,109 @@
+package com.javayhu.kiss.views.common;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.SurfaceTexture;
+import android.os.Build;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.Surface;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * 两种阴影方式每一帧的绘制耗时
+ * <p>
+ * SHADOW_MODE_SOFTWARE按软件layer的方式：每次invalidate都在软件canvas上重新光栅化整个view(带setShadowLayer的模糊)，
+ * 再把layer作为新的纹理画到硬件canvas上；SHADOW_MODE_BITMAP直接画到硬件canvas上，阴影是缓存的bitmap
+ * <p>
+ * 需要API 23的lockHardwareCanvas，结果输出到logcat：adb logcat -s BadgeShadowBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeShadowBenchmark {
+
+    private static final String TAG = "BadgeShadowBenchmark";
+    private static final int SIZE = 200;
+    private static final int WARM_UP_FRAMES = 100;
+    private static final int FRAMES = 1000;
+
+    @Test
+    public void drawFrame() {
+        Assume.assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.M);
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                //缓存的sprite会让两种方式都只画一张位图，这里比较的是每一帧真正绘制badge的开销
+                boolean spriteCacheEnabled = BadgeSpriteCache.isEnabled();
+                BadgeSpriteCache.setEnabled(false);
+                SurfaceTexture texture = new SurfaceTexture(0);
+                texture.setDefaultBufferSize(SIZE, SIZE);
+                Surface surface = new Surface(texture);
+                try {
+                    DraggableBadgeView software = createBadge(DraggableBadgeView.SHADOW_MODE_SOFTWARE);
+                    Bitmap layer = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+                    Canvas layerCanvas = new Canvas(layer);
+                    runSoftware(software, surface, layer, layerCanvas, WARM_UP_FRAMES);
+                    long softwareNanos = runSoftware(software, surface, layer, layerCanvas, FRAMES);
+
+                    DraggableBadgeView bitmap = createBadge(DraggableBadgeView.SHADOW_MODE_BITMAP);
+                    runBitmap(bitmap, surface, WARM_UP_FRAMES);
+                    long bitmapNanos = runBitmap(bitmap, surface, FRAMES);
+
+                    Log.i(TAG, "SHADOW_MODE_SOFTWARE: " + softwareNanos / FRAMES + " ns/frame");
+                    Log.i(TAG, "SHADOW_MODE_BITMAP: " + bitmapNanos / FRAMES + " ns/frame");
+                } finally {
+                    surface.release();
+                    texture.release();
+                    BadgeSpriteCache.setEnabled(spriteCacheEnabled);
+                }
+            }
+        });
+    }
+
+    private static DraggableBadgeView createBadge(int shadowMode) {
+        Context context = InstrumentationRegistry.getTargetContext();
+        FrameLayout container = new FrameLayout(context);
+        View target = new View(context);
+        container.addView(target, new FrameLayout.LayoutParams(SIZE, SIZE));
+        DraggableBadgeView badge = (DraggableBadgeView) DraggableBadgeView.obtain(target);
+        badge.setBadgeNumber(42);
+        badge.setShadowMode(shadowMode);
+        int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+        badge.measure(spec, spec);
+        badge.layout(0, 0, SIZE, SIZE);
+        return badge;
+    }
+
+    private static long runSoftware(DraggableBadgeView badge, Surface surface, Bitmap layer, Canvas layerCanvas,
+                                    int frames) {
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            layerCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            badge.onDraw(layerCanvas);
+            Canvas canvas = surface.lockHardwareCanvas();
+            canvas.drawColor(Color.WHITE);
+            canvas.drawBitmap(layer, 0, 0, null);
+            surface.unlockCanvasAndPost(canvas);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runBitmap(DraggableBadgeView badge, Surface surface, int frames) {
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            Canvas canvas = surface.lockHardwareCanvas();
+            canvas.drawColor(Color.WHITE);
+            badge.onDraw(canvas);
+            surface.unlockCanvasAndPost(canvas);
+        }
+        return System.nanoTime() - start;
+    }
+}
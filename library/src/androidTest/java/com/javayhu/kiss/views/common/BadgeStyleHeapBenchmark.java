@@ -0,0 +1,101 @@
+package com.javayhu.kiss.views.common;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.widget.FrameLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 10000个badge使用5种样式时的内存占用(Java堆和Paint占用的native内存)：共用BadgeStyle的BadgeDrawable，
+ * 和原来每个badge各自持有两个Paint、一个LayoutParams以及各自的样式字段对比
+ * <p>
+ * 结果输出到logcat：adb logcat -s BadgeStyleHeapBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeStyleHeapBenchmark {
+
+    private static final String TAG = "BadgeStyleHeapBenchmark";
+    private static final int BADGES = 10000;
+    private static final int[] COLORS = {Color.RED, Color.BLUE, Color.GREEN, Color.YELLOW, Color.BLACK};
+
+    @Test
+    public void heapFootprint() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                BadgeStyle base = BadgeFactory.circleStyle(context);
+                float density = context.getResources().getDisplayMetrics().density;
+
+                long before = usedHeap();
+                long nativeBefore = Debug.getNativeHeapAllocatedSize();
+                BadgeDrawable[] shared = new BadgeDrawable[BADGES];
+                for (int i = 0; i < BADGES; i++) {
+                    shared[i] = new BadgeDrawable(base.withBackgroundColor(COLORS[i % COLORS.length])).setBadgeCount(i);
+                }
+                long sharedBytes = usedHeap() - before;
+                long sharedNative = Debug.getNativeHeapAllocatedSize() - nativeBefore;
+
+                before = usedHeap();
+                nativeBefore = Debug.getNativeHeapAllocatedSize();
+                LegacyBadge[] legacy = new LegacyBadge[BADGES];
+                for (int i = 0; i < BADGES; i++) {
+                    legacy[i] = new LegacyBadge(density, COLORS[i % COLORS.length], i);
+                }
+                long legacyBytes = usedHeap() - before;
+                long legacyNative = Debug.getNativeHeapAllocatedSize() - nativeBefore;
+
+                Log.i(TAG, "shared BadgeStyle, " + BADGES + " badges: java " + sharedBytes / 1024 + " KB, native "
+                        + sharedNative / 1024 + " KB, " + (sharedBytes + sharedNative) / BADGES + " bytes/badge");
+                Log.i(TAG, "per-badge Paints, " + BADGES + " badges: java " + legacyBytes / 1024 + " KB, native "
+                        + legacyNative / 1024 + " KB, " + (legacyBytes + legacyNative) / BADGES + " bytes/badge");
+                assertTrue(shared[BADGES - 1] != null && legacy[BADGES - 1] != null);
+                assertTrue("shared " + (sharedBytes + sharedNative) + " >= legacy " + (legacyBytes + legacyNative),
+                        sharedBytes + sharedNative < legacyBytes + legacyNative);
+            }
+        });
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    //原来BadgeView每个实例的样式状态：两个Paint、一个LayoutParams、dp转换后的尺寸和显示的文字
+    private static class LegacyBadge {
+
+        final Paint numberPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        final Paint backgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        final FrameLayout.LayoutParams layoutParams;
+        final float textSize;
+        final int width;
+        final int height;
+        final String showText;
+
+        LegacyBadge(float density, int backgroundColor, int count) {
+            textSize = 10 * density;
+            width = (int) (20 * density);
+            height = (int) (20 * density);
+            numberPaint.setColor(Color.WHITE);
+            numberPaint.setTextSize(textSize);
+            numberPaint.setTextAlign(Paint.Align.CENTER);
+            backgroundPaint.setColor(backgroundColor);
+            backgroundPaint.setStyle(Paint.Style.FILL);
+            layoutParams = new FrameLayout.LayoutParams(width, height);
+            showText = String.valueOf(count);
+        }
+    }
+}
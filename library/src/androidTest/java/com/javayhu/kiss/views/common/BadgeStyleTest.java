@@ -0,0 +1,54 @@
+package com.javayhu.kiss.views.common;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 属性相同的样式是同一个对象，很多badge分别修改外观时不会各自持有一份Paint
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeStyleTest {
+
+    private static final int BADGES = 100;
+
+    @Test
+    public void derivedStylesAreShared() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        BadgeStyle base = BadgeFactory.circleStyle(context);
+        BadgeStyle blue = base.withBackgroundColor(Color.BLUE).withTextColor(Color.YELLOW);
+        assertSame(blue, base.withTextColor(Color.YELLOW).withBackgroundColor(Color.BLUE));
+        assertSame(base, blue.withBackgroundColor(Color.RED).withTextColor(Color.WHITE));
+        assertNotSame(blue, base.withBackgroundColor(Color.GREEN).withTextColor(Color.YELLOW));
+    }
+
+    @Test
+    public void customizedBadgeViewsShareOneStyle() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                BadgeStyle first = null;
+                for (int i = 0; i < BADGES; i++) {
+                    BadgeView badge = BadgeFactory.createCircle(context)
+                            .setTextColor(Color.YELLOW)
+                            .setBadgeBackground(Color.BLUE)
+                            .setShape(BadgeView.SHAPE_ROUND_RECTANGLE)
+                            .setTextSize(14);
+                    if (first == null) {
+                        first = badge.getBadgeStyle();
+                    } else {
+                        assertSame(first, badge.getBadgeStyle());
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,87 @@
+package com.javayhu.kiss.views.common;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+/**
+ * 叶子节点变化时BadgeTree沿祖先增量更新(O(depth))，和原来每次变化都遍历所有叶子重新求和对比
+ * <p>
+ * 树的结构是root -> TABS个tab -> 每个tab LEAVES_PER_TAB个叶子，
+ * 结果输出到logcat：adb logcat -s BadgeTreeBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeTreeBenchmark {
+
+    private static final String TAG = "BadgeTreeBenchmark";
+    private static final int TABS = 50;
+    private static final int LEAVES_PER_TAB = 1000;
+    private static final int LEAVES = TABS * LEAVES_PER_TAB;
+    private static final int INCREMENTAL_UPDATES = 100000;
+    //全量计算每次要遍历所有叶子，次数少一些
+    private static final int FULL_UPDATES = 1000;
+
+    @Test
+    public void propagation() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                BadgeTree tree = new BadgeTree();
+                BadgeTree.Node[] leaves = new BadgeTree.Node[LEAVES];
+                for (int t = 0; t < TABS; t++) {
+                    BadgeTree.Node tab = tree.getRoot().addChild();
+                    for (int l = 0; l < LEAVES_PER_TAB; l++) {
+                        leaves[t * LEAVES_PER_TAB + l] = tab.addChild();
+                    }
+                }
+                int[] values = new int[LEAVES];
+                int[] tabSums = new int[TABS];
+
+                runIncremental(tree, leaves, INCREMENTAL_UPDATES / 10);
+                long incremental = runIncremental(tree, leaves, INCREMENTAL_UPDATES);
+                runFull(values, tabSums, FULL_UPDATES / 10);
+                long full = runFull(values, tabSums, FULL_UPDATES);
+
+                Log.i(TAG, LEAVES + " leaves, incremental: " + incremental / INCREMENTAL_UPDATES + " ns/update");
+                Log.i(TAG, LEAVES + " leaves, full recompute: " + full / FULL_UPDATES + " ns/update");
+            }
+        });
+    }
+
+    //每次更新一个随机叶子，最后统一dispatch一次
+    private static long runIncremental(BadgeTree tree, BadgeTree.Node[] leaves, int updates) {
+        Random random = new Random(1);
+        long start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            leaves[random.nextInt(LEAVES)].setValue(random.nextInt(100));
+        }
+        tree.dispatch();
+        return System.nanoTime() - start;
+    }
+
+    //原来的做法：任何叶子变化都重新计算每个tab和root的和
+    private static long runFull(int[] values, int[] tabSums, int updates) {
+        Random random = new Random(1);
+        long start = System.nanoTime();
+        int root = 0;
+        for (int i = 0; i < updates; i++) {
+            values[random.nextInt(LEAVES)] = random.nextInt(100);
+            root = 0;
+            for (int t = 0; t < TABS; t++) {
+                int sum = 0;
+                for (int l = t * LEAVES_PER_TAB, end = l + LEAVES_PER_TAB; l < end; l++) {
+                    sum += values[l];
+                }
+                tabSums[t] = sum;
+                root += sum;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        Log.d(TAG, "root " + root);
+        return elapsed;
+    }
+}
@@ -0,0 +1,120 @@
+package com.javayhu.kiss.views.common;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 父节点的数字始终等于子节点之和
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeTreeTest {
+
+    @Test
+    public void parentIsSumOfChildren() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                BadgeTree tree = new BadgeTree();
+                BadgeTree.Node tab = tree.getRoot().addChild();
+                BadgeTree.Node chat = tab.addChild().setValue(3);
+                BadgeTree.Node mail = tab.addChild().setValue(4);
+                BadgeTree.Node feed = tree.getRoot().addChild().setValue(5);
+                assertEquals(7, tab.getValue());
+                assertEquals(12, tree.getRoot().getValue());
+
+                chat.add(-1);
+                mail.setValue(0);
+                assertEquals(2, tab.getValue());
+                assertEquals(7, tree.getRoot().getValue());
+
+                feed.remove();
+                assertEquals(2, tree.getRoot().getValue());
+                tree.dispatch();
+            }
+        });
+    }
+
+    @Test
+    public void addChildToLeafWithValueThrows() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                BadgeTree tree = new BadgeTree();
+                BadgeTree.Node leaf = tree.getRoot().addChild().setValue(3);
+                try {
+                    leaf.addChild();
+                    fail("expected IllegalStateException");
+                } catch (IllegalStateException expected) {
+                    assertTrue(leaf.isLeaf());
+                }
+
+                leaf.setValue(0);
+                leaf.addChild().setValue(2);
+                assertEquals(2, leaf.getValue());
+                assertEquals(2, tree.getRoot().getValue());
+                tree.dispatch();
+            }
+        });
+    }
+
+    @Test
+    public void parentCanNotSetValue() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                BadgeTree tree = new BadgeTree();
+                BadgeTree.Node parent = tree.getRoot().addChild();
+                parent.addChild();
+                try {
+                    parent.setValue(1);
+                    fail("expected IllegalStateException");
+                } catch (IllegalStateException expected) {
+                    assertEquals(0, parent.getValue());
+                }
+            }
+        });
+    }
+
+    @Test
+    public void removeTwiceIsNoOp() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                BadgeTree tree = new BadgeTree();
+                BadgeTree.Node tab = tree.getRoot().addChild();
+                BadgeTree.Node chat = tab.addChild().setValue(3);
+                tab.addChild().setValue(4);
+                chat.remove();
+                chat.remove();
+                assertTrue(chat.isRemoved());
+                assertEquals(4, tab.getValue());
+                assertEquals(4, tree.getRoot().getValue());
+                assertFalse(tab.isLeaf());
+                tree.dispatch();
+            }
+        });
+    }
+
+    @Test
+    public void removeRootThrows() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                BadgeTree tree = new BadgeTree();
+                try {
+                    tree.getRoot().remove();
+                    fail("expected IllegalStateException");
+                } catch (IllegalStateException expected) {
+                    assertFalse(tree.getRoot().isRemoved());
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,72 @@
+package com.javayhu.kiss.views.common;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * BadgeView的onDraw不应该创建对象，文字和形状在数字或样式变化时已经计算好
+ */
+@RunWith(AndroidJUnit4.class)
+public class BadgeViewAllocationTest {
+
+    private static final int SIZE = 100;
+    private static final int FRAMES = 60;
+
+    private final boolean mSpriteCacheEnabled = BadgeSpriteCache.isEnabled();
+
+    @After
+    public void tearDown() {
+        BadgeSpriteCache.setEnabled(mSpriteCacheEnabled);
+    }
+
+    @Test
+    public void drawDoesNotAllocate() {
+        BadgeSpriteCache.setEnabled(false);
+        assertDrawDoesNotAllocate();
+    }
+
+    @Test
+    public void drawSpriteDoesNotAllocate() {
+        BadgeSpriteCache.setEnabled(true);
+        assertDrawDoesNotAllocate();
+    }
+
+    private void assertDrawDoesNotAllocate() {
+        final int[] shapes = {BadgeView.SHAPE_CIRCLE, BadgeView.SHAPE_RECTANGLE, BadgeView.SHAPE_OVAL,
+                BadgeView.SHAPE_ROUND_RECTANGLE, BadgeView.SHAPE_SQUARE};
+        for (final int shape : shapes) {
+            final BadgeView[] badge = new BadgeView[1];
+            final Canvas[] canvas = new Canvas[1];
+            AllocationCounter.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    Context context = InstrumentationRegistry.getTargetContext();
+                    badge[0] = BadgeFactory.create(context).setShape(shape).setBadgeCount(42);
+                    int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+                    badge[0].measure(spec, spec);
+                    badge[0].layout(0, 0, SIZE, SIZE);
+                    canvas[0] = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+                }
+            });
+            int count = AllocationCounter.count(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < FRAMES; i++) {
+                        badge[0].onDraw(canvas[0]);
+                    }
+                }
+            });
+            assertEquals("shape " + shape, 0, count);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.javayhu.kiss.views.common;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * DraggableBadgeView的onDraw和onTouchEvent在静止和拖拽的每一帧都不应该创建对象
+ */
+@RunWith(AndroidJUnit4.class)
+public class DraggableBadgeViewAllocationTest {
+
+    private static final int SIZE = 400;
+    private static final int FRAMES = 60;
+
+    private DraggableBadgeView mBadge;
+    private Canvas mCanvas;
+    private MotionEvent mDown;
+    private MotionEvent[] mMoves;
+    private MotionEvent mUp;
+
+    @Before
+    public void setUp() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                FrameLayout container = new FrameLayout(context);
+                View target = new View(context);
+                container.addView(target, new FrameLayout.LayoutParams(SIZE, SIZE));
+                mBadge = (DraggableBadgeView) DraggableBadgeView.obtain(target);
+                mBadge.setBadgeNumber(42);
+                mBadge.setDragFrameSync(false);
+                mBadge.setOnDragStateChangedListener(new Badge.OnDragStateChangedListener() {
+                    @Override
+                    public void onDragStateChanged(int dragState, Badge badge, View targetView) {
+                    }
+                });
+                int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+                mBadge.measure(spec, spec);
+                mBadge.layout(0, 0, SIZE, SIZE);
+                mCanvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+                mBadge.onDraw(mCanvas);
+
+                //拖拽的距离不超过范围，松手之后回到原位，同一组事件可以重复使用
+                float x = mBadge.mBadgeCenter.x;
+                float y = mBadge.mBadgeCenter.y;
+                long time = SystemClock.uptimeMillis();
+                mDown = MotionEvent.obtain(time, time, MotionEvent.ACTION_DOWN, x, y, 0);
+                mMoves = new MotionEvent[FRAMES];
+                for (int i = 0; i < FRAMES; i++) {
+                    mMoves[i] = MotionEvent.obtain(time, time + (i + 1) * 16, MotionEvent.ACTION_MOVE,
+                            x - i % 30, y + i % 20, 0);
+                }
+                mUp = MotionEvent.obtain(time, time + (FRAMES + 1) * 16, MotionEvent.ACTION_UP, x, y, 0);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        mDown.recycle();
+        for (MotionEvent move : mMoves) {
+            move.recycle();
+        }
+        mUp.recycle();
+    }
+
+    @Test
+    public void drawDoesNotAllocate() {
+        int count = AllocationCounter.count(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < FRAMES; i++) {
+                    mBadge.onDraw(mCanvas);
+                }
+            }
+        });
+        assertEquals(0, count);
+    }
+
+    @Test
+    public void dragDoesNotAllocate() {
+        int count = AllocationCounter.count(new Runnable() {
+            @Override
+            public void run() {
+                mBadge.onTouchEvent(mDown);
+                mBadge.onDraw(mCanvas);
+                for (MotionEvent move : mMoves) {
+                    mBadge.onTouchEvent(move);
+                    mBadge.onDraw(mCanvas);
+                }
+                mBadge.onTouchEvent(mUp);
+                mBadge.onDraw(mCanvas);
+            }
+        });
+        assertEquals(0, count);
+    }
+}
@@ -0,0 +1,119 @@
+package com.javayhu.kiss.views.common;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 回放触摸事件序列，检查开启位置预测之后松手时是否消除只由真实的触摸位置决定
+ * <p>
+ * 每个序列的采样点是{时间(ms), x偏移(dp), y偏移(dp)}，偏移相对于badge的中心，
+ * 第一个点是DOWN，最后一个点是UP，中间的都是MOVE，每个MOVE之后按开启了frameSync的方式处理一帧并绘制
+ * <p>
+ * 默认参数下拖拽距离超过100dp * (1 - 1.5 / 7)约78.6dp就算超出范围
+ */
+@RunWith(AndroidJUnit4.class)
+public class DraggableBadgeViewDragReplayTest {
+
+    private static final int SIZE = 400;
+    private static final float PREDICTION_MILLIS = 32;
+
+    //快速甩到70dp后立即松手，预测的位置超出范围，真实的位置没有超出
+    private static final float[][] FLICK_RELEASED_IN_RANGE = {
+            {0, 0, 0}, {8, 10, 0}, {16, 20, 0}, {24, 30, 0}, {32, 40, 0},
+            {40, 50, 0}, {48, 60, 0}, {56, 70, 0}, {60, 70, 0}
+    };
+
+    //慢慢拖到120dp后松手
+    private static final float[][] DRAG_OUT_AND_RELEASE = {
+            {0, 0, 0}, {16, 10, -10}, {32, 20, -20}, {48, 30, -30}, {64, 40, -40},
+            {80, 50, -50}, {96, 60, -60}, {112, 70, -70}, {128, 80, -80}, {144, 85, -85}, {160, 85, -85}
+    };
+
+    //拖出范围之后再拖回来松手
+    private static final float[][] DRAG_OUT_AND_BACK = {
+            {0, 0, 0}, {16, 0, 30}, {32, 0, 60}, {48, 0, 90}, {64, 0, 120}, {80, 0, 120},
+            {96, 0, 90}, {112, 0, 60}, {128, 0, 30}, {144, 0, 20}, {160, 0, 20}
+    };
+
+    private int mLastState;
+
+    @Test
+    public void flickReleasedInRangeIsCanceled() {
+        DraggableBadgeView badge = replay(FLICK_RELEASED_IN_RANGE);
+        assertEquals(Badge.OnDragStateChangedListener.STATE_CANCELED, mLastState);
+        assertEquals(42, badge.getBadgeNumber());
+    }
+
+    @Test
+    public void dragOutAndReleaseIsDismissed() {
+        DraggableBadgeView badge = replay(DRAG_OUT_AND_RELEASE);
+        assertEquals(Badge.OnDragStateChangedListener.STATE_SUCCEED, mLastState);
+        assertEquals(0, badge.getBadgeNumber());
+    }
+
+    @Test
+    public void dragOutAndBackIsCanceled() {
+        DraggableBadgeView badge = replay(DRAG_OUT_AND_BACK);
+        assertEquals(Badge.OnDragStateChangedListener.STATE_CANCELED, mLastState);
+        assertEquals(42, badge.getBadgeNumber());
+    }
+
+    private DraggableBadgeView replay(final float[][] stream) {
+        final DraggableBadgeView[] result = new DraggableBadgeView[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                float density = context.getResources().getDisplayMetrics().density;
+                FrameLayout container = new FrameLayout(context);
+                View target = new View(context);
+                container.addView(target, new FrameLayout.LayoutParams(SIZE, SIZE));
+                DraggableBadgeView badge = (DraggableBadgeView) DraggableBadgeView.obtain(target);
+                badge.setBadgeNumber(42);
+                badge.setDragPrediction(PREDICTION_MILLIS);
+                badge.setOnDragStateChangedListener(new Badge.OnDragStateChangedListener() {
+                    @Override
+                    public void onDragStateChanged(int dragState, Badge badge, View targetView) {
+                        mLastState = dragState;
+                    }
+                });
+                int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+                badge.measure(spec, spec);
+                badge.layout(0, 0, SIZE, SIZE);
+                Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+                badge.onDraw(canvas);
+
+                float centerX = badge.mBadgeCenter.x;
+                float centerY = badge.mBadgeCenter.y;
+                long downTime = SystemClock.uptimeMillis();
+                for (int i = 0; i < stream.length; i++) {
+                    int action = i == 0 ? MotionEvent.ACTION_DOWN
+                            : i == stream.length - 1 ? MotionEvent.ACTION_UP : MotionEvent.ACTION_MOVE;
+                    MotionEvent event = MotionEvent.obtain(downTime, downTime + (long) stream[i][0], action,
+                            centerX + stream[i][1] * density, centerY + stream[i][2] * density, 0);
+                    badge.onTouchEvent(event);
+                    event.recycle();
+                    if (action == MotionEvent.ACTION_MOVE) {
+                        //代替Choreographer的回调处理一帧
+                        badge.applyDragPosition(true);
+                        badge.onDraw(canvas);
+                    }
+                }
+                result[0] = badge;
+            }
+        });
+        return result[0];
+    }
+}
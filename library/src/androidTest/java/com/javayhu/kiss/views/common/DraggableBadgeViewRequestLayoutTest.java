@@ -0,0 +1,102 @@
+package com.javayhu.kiss.views.common;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 在overlay中拖拽时badge不会被移动到activity根view，整个拖拽过程中父容器和根view都不应该收到requestLayout
+ * <p>
+ * 采样点的格式和DraggableBadgeViewDragReplayTest一样：{时间(ms), x偏移(dp), y偏移(dp)}
+ */
+@RunWith(AndroidJUnit4.class)
+public class DraggableBadgeViewRequestLayoutTest {
+
+    private static final int SIZE = 400;
+
+    //拖出范围之后再拖回来松手，badge回到原位
+    private static final float[][] DRAG_OUT_AND_BACK = {
+            {0, 0, 0}, {16, 0, 30}, {32, 0, 60}, {48, 0, 90}, {64, 0, 120}, {80, 0, 120},
+            {96, 0, 90}, {112, 0, 60}, {128, 0, 30}, {144, 0, 20}, {160, 0, 20}
+    };
+
+    @Test
+    public void dragInOverlayDoesNotRequestLayout() {
+        AllocationCounter.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                float density = context.getResources().getDisplayMetrics().density;
+                LayoutCountingFrameLayout root = new LayoutCountingFrameLayout(context);
+                LayoutCountingFrameLayout container = new LayoutCountingFrameLayout(context);
+                root.addView(container, new FrameLayout.LayoutParams(SIZE, SIZE));
+                View target = new View(context);
+                container.addView(target, new FrameLayout.LayoutParams(SIZE, SIZE));
+                DraggableBadgeView badge = (DraggableBadgeView) DraggableBadgeView.obtain(target);
+                badge.setBadgeNumber(42);
+                //没有attach到window，直接指定overlay所在的根view
+                badge.mActivityRoot = root;
+                assertTrue(badge.isDragInOverlay());
+
+                int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+                root.measure(spec, spec);
+                root.layout(0, 0, SIZE, SIZE);
+                Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+                badge.onDraw(canvas);
+                root.mRequestLayoutCount = 0;
+                container.mRequestLayoutCount = 0;
+
+                float centerX = badge.mBadgeCenter.x;
+                float centerY = badge.mBadgeCenter.y;
+                long downTime = SystemClock.uptimeMillis();
+                boolean overlayShown = false;
+                for (int i = 0; i < DRAG_OUT_AND_BACK.length; i++) {
+                    float[] sample = DRAG_OUT_AND_BACK[i];
+                    int action = i == 0 ? MotionEvent.ACTION_DOWN
+                            : i == DRAG_OUT_AND_BACK.length - 1 ? MotionEvent.ACTION_UP : MotionEvent.ACTION_MOVE;
+                    MotionEvent event = MotionEvent.obtain(downTime, downTime + (long) sample[0], action,
+                            centerX + sample[1] * density, centerY + sample[2] * density, 0);
+                    badge.onTouchEvent(event);
+                    event.recycle();
+                    if (action == MotionEvent.ACTION_MOVE) {
+                        overlayShown |= badge.mOverlayShown;
+                        badge.applyDragPosition(true);
+                        badge.onDraw(canvas);
+                    }
+                }
+
+                assertTrue("drag never reached the overlay", overlayShown);
+                assertEquals(container, badge.getParent());
+                assertEquals(0, container.mRequestLayoutCount);
+                assertEquals(0, root.mRequestLayoutCount);
+            }
+        });
+    }
+
+    private static class LayoutCountingFrameLayout extends FrameLayout {
+
+        int mRequestLayoutCount;
+
+        LayoutCountingFrameLayout(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void requestLayout() {
+            mRequestLayoutCount++;
+            super.requestLayout();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.javayhu.kiss.views.imageview;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Color;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 只有bitmap变化时才重新创建BitmapShader，大小、padding和边框变化只更新shader的矩阵
+ */
+@RunWith(AndroidJUnit4.class)
+public class CircleImageViewShaderTest {
+
+    @Test
+    public void shaderIsReusedOnResizeAndBorderChange() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                CircleImageView view = new CircleImageView(InstrumentationRegistry.getTargetContext());
+                Bitmap bitmap = createBitmap();
+                view.setImageBitmap(bitmap);
+                layout(view, 100);
+                BitmapShader shader = getShader(view);
+                assertNotNull(shader);
+
+                layout(view, 200);
+                assertSame(shader, getShader(view));
+                layout(view, 80);
+                assertSame(shader, getShader(view));
+
+                view.setBorderWidth(6);
+                assertSame(shader, getShader(view));
+                view.setBorderColor(Color.RED);
+                assertSame(shader, getShader(view));
+                view.setBorderOverlay(true);
+                assertSame(shader, getShader(view));
+                view.setPadding(4, 4, 4, 4);
+                assertSame(shader, getShader(view));
+
+                view.setImageBitmap(bitmap);
+                assertSame(shader, getShader(view));
+                view.setImageBitmap(createBitmap());
+                assertNotSame(shader, getShader(view));
+            }
+        });
+    }
+
+    private static Bitmap createBitmap() {
+        Bitmap bitmap = Bitmap.createBitmap(64, 48, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(Color.BLUE);
+        return bitmap;
+    }
+
+    private static void layout(View view, int size) {
+        int spec = View.MeasureSpec.makeMeasureSpec(size, View.MeasureSpec.EXACTLY);
+        view.measure(spec, spec);
+        view.layout(0, 0, size, size);
+    }
+
+    private static BitmapShader getShader(CircleImageView view) {
+        try {
+            Field field = CircleImageView.class.getDeclaredField("mBitmapShader");
+            field.setAccessible(true);
+            return (BitmapShader) field.get(view);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.javayhu.kiss.views.imageview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.StateListDrawable;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import com.javayhu.kiss.views.test.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(AndroidJUnit4.class)
+public class CircleImageViewTest {
+
+    private static final int SIZE = 100;
+
+    //ImageView的构造方法中设置android:src的时候CircleImageView的字段还没有初始化
+    @Test
+    public void colorSrcFromXml() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                CircleImageView view = (CircleImageView) LayoutInflater.from(InstrumentationRegistry.getContext())
+                        .inflate(R.layout.circle_image_view_color, null);
+                layout(view, SIZE);
+                assertEquals(Color.BLUE, drawCenter(view));
+            }
+        });
+    }
+
+    @Test
+    public void rasterBitmapIsClearedWithoutSpace() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                CircleImageView view = new CircleImageView(InstrumentationRegistry.getTargetContext());
+                StateListDrawable drawable = new StateListDrawable();
+                drawable.addState(new int[0], new ColorDrawable(Color.GREEN));
+                view.setImageDrawable(drawable);
+                layout(view, SIZE);
+                assertNotNull(getBitmap(view));
+
+                StateListDrawable other = new StateListDrawable();
+                other.addState(new int[0], new ColorDrawable(Color.RED));
+                view.setImageDrawable(other);
+                view.setPadding(SIZE, SIZE, SIZE, SIZE);
+                assertNull(getBitmap(view));
+            }
+        });
+    }
+
+    private static void layout(View view, int size) {
+        int spec = View.MeasureSpec.makeMeasureSpec(size, View.MeasureSpec.EXACTLY);
+        view.measure(spec, spec);
+        view.layout(0, 0, size, size);
+    }
+
+    private static int drawCenter(View view) {
+        Bitmap bitmap = Bitmap.createBitmap(view.getWidth(), view.getHeight(), Bitmap.Config.ARGB_8888);
+        view.draw(new Canvas(bitmap));
+        return bitmap.getPixel(view.getWidth() / 2, view.getHeight() / 2);
+    }
+
+    private static Bitmap getBitmap(CircleImageView view) {
+        try {
+            Field field = CircleImageView.class.getDeclaredField("mBitmap");
+            field.setAccessible(true);
+            return (Bitmap) field.get(view);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.javayhu.kiss.views.imageview;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.drawable.ClipDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.StateListDrawable;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.Gravity;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 同一个ConstantState在不同的state和level下是不同的位图
+ */
+@RunWith(AndroidJUnit4.class)
+public class DrawableRasterCacheTest {
+
+    private static final int SIZE = 20;
+    private static final int[] PRESSED = {android.R.attr.state_pressed};
+    private static final int[] NORMAL = new int[0];
+
+    private final DrawableRasterCache mCache = DrawableRasterCache.getInstance();
+
+    @Before
+    public void setUp() {
+        mCache.clear();
+    }
+
+    @Test
+    public void stateIsPartOfTheKey() {
+        StateListDrawable drawable = new StateListDrawable();
+        drawable.addState(PRESSED, new ColorDrawable(Color.RED));
+        drawable.addState(NORMAL, new ColorDrawable(Color.BLUE));
+
+        drawable.setState(PRESSED);
+        Bitmap pressed = get(drawable);
+        assertEquals(Color.RED, pressed.getPixel(SIZE / 2, SIZE / 2));
+
+        drawable.setState(NORMAL);
+        Bitmap normal = get(drawable);
+        assertNotSame(pressed, normal);
+        assertEquals(Color.BLUE, normal.getPixel(SIZE / 2, SIZE / 2));
+
+        drawable.setState(PRESSED);
+        assertSame(pressed, get(drawable));
+    }
+
+    @Test
+    public void levelIsPartOfTheKey() {
+        Drawable drawable = new ClipDrawable(new ColorDrawable(Color.RED), Gravity.LEFT, ClipDrawable.HORIZONTAL);
+
+        drawable.setLevel(10000);
+        Bitmap full = get(drawable);
+        assertEquals(Color.RED, full.getPixel(SIZE - 1, SIZE / 2));
+
+        drawable.setLevel(5000);
+        Bitmap half = get(drawable);
+        assertNotSame(full, half);
+        assertEquals(Color.TRANSPARENT, half.getPixel(SIZE - 1, SIZE / 2));
+
+        drawable.setLevel(10000);
+        assertSame(full, get(drawable));
+    }
+
+    private Bitmap get(Drawable drawable) {
+        return mCache.get(drawable, SIZE, SIZE, false, 0);
+    }
+}
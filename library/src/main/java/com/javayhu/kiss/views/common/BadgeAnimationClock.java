@@ -0,0 +1,116 @@
+package com.javayhu.kiss.views.common;
+
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * 所有badge动画共用的时钟
+ * <p>
+ * 1.整个进程只有一个Choreographer.FrameCallback，每一帧依次回调所有正在播放动画的badge
+ * 2.没有正在播放的动画时不再注册frame callback
+ * 3.只在主线程使用
+ */
+public class BadgeAnimationClock {
+
+    public interface Callback {
+        /**
+         * @return false表示动画已经结束，从时钟中移除
+         */
+        boolean onAnimationFrame(long frameTimeNanos);
+    }
+
+    private static BadgeAnimationClock sInstance;
+
+    private final ArrayList<Callback> mCallbacks = new ArrayList<>();
+    //回调过程中移除的callback先置为null，回调结束之后再统一清理
+    private boolean mDispatching;
+    private boolean mHasRemoved;
+    private boolean mFrameScheduled;
+    private long mFrameTimeNanos;
+
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mFrameScheduled = false;
+            dispatch(frameTimeNanos);
+            scheduleFrame();
+        }
+    };
+
+    public static BadgeAnimationClock getInstance() {
+        if (sInstance == null) {
+            sInstance = new BadgeAnimationClock();
+        }
+        return sInstance;
+    }
+
+    public void add(Callback callback) {
+        if (!mCallbacks.contains(callback)) {
+            mCallbacks.add(callback);
+        }
+        scheduleFrame();
+    }
+
+    public void remove(Callback callback) {
+        int index = mCallbacks.indexOf(callback);
+        if (index < 0) {
+            return;
+        }
+        if (mDispatching) {
+            mCallbacks.set(index, null);
+            mHasRemoved = true;
+        } else {
+            mCallbacks.remove(index);
+            if (mCallbacks.isEmpty() && mFrameScheduled) {
+                mFrameScheduled = false;
+                Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+            }
+        }
+    }
+
+    /**
+     * @return 最近一帧的时间，所有badge使用同一个时间，同一种效果的节奏是一致的
+     */
+    public long getFrameTimeNanos() {
+        return mFrameTimeNanos;
+    }
+
+    public boolean isRunning() {
+        return mFrameScheduled;
+    }
+
+    private void dispatch(long frameTimeNanos) {
+        mFrameTimeNanos = frameTimeNanos;
+        mDispatching = true;
+        //回调中新加入的callback从下一帧开始处理
+        for (int i = 0, size = mCallbacks.size(); i < size; i++) {
+            Callback callback = mCallbacks.get(i);
+            if (callback != null && !callback.onAnimationFrame(frameTimeNanos)) {
+                mCallbacks.set(i, null);
+                mHasRemoved = true;
+            }
+        }
+        mDispatching = false;
+        if (mHasRemoved) {
+            mHasRemoved = false;
+            int count = 0;
+            for (int i = 0, size = mCallbacks.size(); i < size; i++) {
+                Callback callback = mCallbacks.get(i);
+                if (callback != null) {
+                    mCallbacks.set(count++, callback);
+                }
+            }
+            for (int i = mCallbacks.size() - 1; i >= count; i--) {
+                mCallbacks.remove(i);
+            }
+        }
+    }
+
+    private void scheduleFrame() {
+        if (!mFrameScheduled && !mCallbacks.isEmpty()) {
+            mFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    }
+}
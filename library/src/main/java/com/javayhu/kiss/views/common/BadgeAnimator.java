@@ -15,9 +15,44 @@ import java.util.Random;
  * BadgeView以粒子形式消失的动画 (1-2)
  * <p>
  * https://github.com/qstumn/BadgeView
+ * <p>
+ * 粒子数据按数组存放(struct of arrays)，所有粒子共用一个Paint和一个随机数生成器，
+ * 相同颜色的粒子排在一起，每种颜色只调用一次drawPoints。
+ * <p>
+ * 随机数只在创建粒子时使用，每次都用同一个种子，相同的badge每次消失的效果一样；
+ * 粒子的位置只由动画已经播放的时间决定，和帧率无关。
  */
 public class BadgeAnimator extends ValueAnimator {
-    private BitmapFragment[][] mFragments;
+
+    public static final int DEFAULT_PARTICLES_PER_SIDE = 6;
+    public static final long DEFAULT_DURATION = 500;
+    public static final long DEFAULT_SEED = 0x6B697373L;
+
+    //原来的速度是按每帧16ms设计的，换算成px/ms
+    private static final float FRAME_MILLIS = 16f;
+
+    private static final Random sRandom = new Random();
+    private static long sSeed = DEFAULT_SEED;
+    private static final Paint sPaint;
+
+    static {
+        sPaint = new Paint();
+        sPaint.setAntiAlias(true);
+        sPaint.setStyle(Paint.Style.STROKE);
+        sPaint.setStrokeCap(Paint.Cap.ROUND);
+    }
+
+    //每个粒子的初始位置、当前位置(x,y交错存放，可以直接交给drawPoints)和速度(px/ms)
+    private float[] mOrigins;
+    private float[] mPoints;
+    private float[] mVelocities;
+    private int mParticleCount;
+    //按颜色分组：第i组颜色为mGroupColors[i]，粒子区间是[mGroupStarts[i], mGroupStarts[i + 1])
+    private int[] mGroupColors;
+    private int[] mGroupStarts;
+    private int mGroupCount;
+    private float mParticleSize;
+
     private WeakReference<DraggableBadgeView> mWeakBadge;
 
     private BadgeAnimator(DraggableBadgeView badge) {
@@ -25,10 +60,16 @@ public class BadgeAnimator extends ValueAnimator {
     }
 
     public static BadgeAnimator start(Bitmap badgeBitmap, PointF center, DraggableBadgeView badge) {
-        final BadgeAnimator badgeAnimator = new BadgeAnimator(badge);
-        badgeAnimator.setFloatValues(0f, 1f);
-        badgeAnimator.setDuration(500);
-        badgeAnimator.mFragments = badgeAnimator.getFragments(badgeBitmap, center);
+        return start(badgeBitmap, center, badge, DEFAULT_PARTICLES_PER_SIDE, DEFAULT_DURATION);
+    }
+
+    /**
+     * @param particlesPerSide 沿badge较长的一边切分的粒子数
+     * @param duration         粒子的存活时间，单位毫秒
+     */
+    public static BadgeAnimator start(Bitmap badgeBitmap, PointF center, DraggableBadgeView badge,
+                                      int particlesPerSide, long duration) {
+        final BadgeAnimator badgeAnimator = create(badgeBitmap, center, badge, particlesPerSide, duration);
         badgeAnimator.addUpdateListener(new AnimatorUpdateListener() {
             @Override
             public void onAnimationUpdate(ValueAnimator animation) {
@@ -36,7 +77,7 @@ public class BadgeAnimator extends ValueAnimator {
                 if (badgeView == null || !badgeView.isShown()) {
                     badgeAnimator.end();
                 } else {
-                    badgeView.invalidate();
+                    badgeView.invalidateBadge();
                 }
             }
         });
@@ -53,59 +94,140 @@ public class BadgeAnimator extends ValueAnimator {
         return badgeAnimator;
     }
 
+    //只创建粒子，不启动动画
+    static BadgeAnimator create(Bitmap badgeBitmap, PointF center, DraggableBadgeView badge,
+                                int particlesPerSide, long duration) {
+        BadgeAnimator badgeAnimator = new BadgeAnimator(badge);
+        badgeAnimator.setFloatValues(0f, 1f);
+        badgeAnimator.setDuration(duration);
+        badgeAnimator.initParticles(badgeBitmap, center, Math.max(1, particlesPerSide));
+        return badgeAnimator;
+    }
+
+    /**
+     * badge已经detach时取消动画，结束时不再调用badge的reset
+     */
+    void cancelDetached() {
+        mWeakBadge.clear();
+        cancel();
+    }
+
+    /**
+     * 设置创建粒子时使用的随机数种子，之后开始的动画才生效
+     */
+    public static void setRandomSeed(long seed) {
+        sSeed = seed;
+    }
+
+    public static long getRandomSeed() {
+        return sSeed;
+    }
+
     public void draw(Canvas canvas) {
-        for (int i = 0; i < mFragments.length; i++) {
-            for (int j = 0; j < mFragments[i].length; j++) {
-                BitmapFragment bf = mFragments[i][j];
-                float value = Float.parseFloat(getAnimatedValue().toString());
-                bf.updata(value, canvas);
-            }
+        float value = getAnimatedFraction();
+        float radius = mParticleSize - value * mParticleSize;
+        if (radius <= 0) {
+            return;
+        }
+        updatePositions(Math.min(getCurrentPlayTime(), getDuration()));
+        float[] points = mPoints;
+        sPaint.setStrokeWidth(radius * 2);
+        for (int i = 0; i < mGroupCount; i++) {
+            int start = mGroupStarts[i];
+            sPaint.setColor(mGroupColors[i]);
+            canvas.drawPoints(points, start * 2, (mGroupStarts[i + 1] - start) * 2, sPaint);
         }
     }
 
-    private BitmapFragment[][] getFragments(Bitmap badgeBitmap, PointF center) {
+    //粒子匀速运动，位置 = 初始位置 + 速度 * 已经播放的时间
+    void updatePositions(long playTime) {
+        float[] origins = mOrigins;
+        float[] points = mPoints;
+        float[] velocities = mVelocities;
+        for (int i = 0, n = mParticleCount * 2; i < n; i++) {
+            points[i] = origins[i] + velocities[i] * playTime;
+        }
+    }
+
+    float[] getPoints() {
+        return mPoints;
+    }
+
+    int getParticleCount() {
+        return mParticleCount;
+    }
+
+    private void initParticles(Bitmap badgeBitmap, PointF center, int particlesPerSide) {
         int width = badgeBitmap.getWidth();
         int height = badgeBitmap.getHeight();
-        float fragmentSize = Math.max(width, height) / 6f;
-        float startX = center.x - badgeBitmap.getWidth() / 2f;
-        float startY = center.y - badgeBitmap.getHeight() / 2f;
-        BitmapFragment[][] fragments = new BitmapFragment[(int) (height / fragmentSize)][(int) (width / fragmentSize)];
-        for (int i = 0; i < fragments.length; i++) {
-            for (int j = 0; j < fragments[i].length; j++) {
-                BitmapFragment bf = new BitmapFragment();
-                bf.color = badgeBitmap.getPixel((int) (j * fragmentSize), (int) (i * fragmentSize));
-                bf.x = startX + j * fragmentSize;
-                bf.y = startY + i * fragmentSize;
-                bf.size = fragmentSize;
-                bf.maxSize = Math.max(width, height);
-                fragments[i][j] = bf;
+        int maxSize = Math.max(width, height);
+        float fragmentSize = maxSize / (float) particlesPerSide;
+        float startX = center.x - width / 2f;
+        float startY = center.y - height / 2f;
+        int rows = (int) (height / fragmentSize);
+        int columns = (int) (width / fragmentSize);
+
+        //一次读出所有像素再取出粒子的颜色，透明的粒子直接丢弃
+        int[] pixels = BadgeBitmapPool.getPixels(badgeBitmap);
+        int[] colors = new int[rows * columns];
+        int[] cells = new int[rows * columns];
+        int count = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                int color = pixels[(int) (i * fragmentSize) * width + (int) (j * fragmentSize)];
+                if ((color >>> 24) == 0) {
+                    continue;
+                }
+                colors[count] = color;
+                cells[count] = i * columns + j;
+                count++;
             }
         }
-        badgeBitmap.recycle();
-        return fragments;
-    }
+        BadgeBitmapPool.release(badgeBitmap);
 
-    private class BitmapFragment {
-        Random random;
-        float x;
-        float y;
-        float size;
-        int color;
-        int maxSize;
-        Paint paint;
-
-        public BitmapFragment() {
-            paint = new Paint();
-            paint.setAntiAlias(true);
-            paint.setStyle(Paint.Style.FILL);
-            random = new Random();
+        //按颜色排序，让相同颜色的粒子连续存放
+        sortByColor(colors, cells, count);
+
+        mParticleCount = count;
+        mOrigins = new float[count * 2];
+        mPoints = new float[count * 2];
+        mVelocities = new float[count * 2];
+        mGroupColors = new int[count];
+        mGroupStarts = new int[count + 1];
+        mGroupCount = 0;
+        mParticleSize = fragmentSize;
+        float speed = 0.05f * maxSize / FRAME_MILLIS;
+        sRandom.setSeed(sSeed);
+        for (int k = 0; k < count; k++) {
+            int row = cells[k] / columns;
+            int column = cells[k] % columns;
+            mOrigins[k * 2] = startX + column * fragmentSize;
+            mOrigins[k * 2 + 1] = startY + row * fragmentSize;
+            mVelocities[k * 2] = speed * (sRandom.nextFloat() - 0.5f);
+            mVelocities[k * 2 + 1] = speed * (sRandom.nextFloat() - 0.5f);
+            if (mGroupCount == 0 || mGroupColors[mGroupCount - 1] != colors[k]) {
+                mGroupColors[mGroupCount] = colors[k];
+                mGroupStarts[mGroupCount] = k;
+                mGroupCount++;
+            }
         }
+        mGroupStarts[mGroupCount] = count;
+        updatePositions(0);
+    }
 
-        public void updata(float value, Canvas canvas) {
-            paint.setColor(color);
-            x = x + 0.1f * random.nextInt(maxSize) * (random.nextFloat() - 0.5f);
-            y = y + 0.1f * random.nextInt(maxSize) * (random.nextFloat() - 0.5f);
-            canvas.drawCircle(x, y, size - value * size, paint);
+    //插入排序，粒子数量很少(默认最多36个)
+    private static void sortByColor(int[] colors, int[] cells, int count) {
+        for (int i = 1; i < count; i++) {
+            int color = colors[i];
+            int cell = cells[i];
+            int j = i - 1;
+            while (j >= 0 && colors[j] > color) {
+                colors[j + 1] = colors[j];
+                cells[j + 1] = cells[j];
+                j--;
+            }
+            colors[j + 1] = color;
+            cells[j + 1] = cell;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package com.javayhu.kiss.views.common;
+
+import android.graphics.Bitmap;
+
+/**
+ * 拖拽消除时badge快照用的位图池
+ * <p>
+ * 连续快速地消除很多badge时，每次都创建新的ARGB_8888位图会导致native内存频繁分配和回收，
+ * 这里缓存少量用过的位图，通过reconfigure和eraseColor重新使用。只在主线程使用。
+ */
+public class BadgeBitmapPool {
+
+    private static final int MAX_POOL_SIZE = 4;
+
+    private static final Bitmap[] sPool = new Bitmap[MAX_POOL_SIZE];
+    private static int sPoolSize;
+
+    private static int[] sPixels = new int[0];
+
+    private BadgeBitmapPool() {
+    }
+
+    /**
+     * 获取一个透明的ARGB_8888位图，优先复用池中足够大的位图
+     */
+    public static Bitmap acquire(int width, int height) {
+        int byteCount = width * height * 4;
+        for (int i = sPoolSize - 1; i >= 0; i--) {
+            Bitmap bitmap = sPool[i];
+            if (bitmap.getAllocationByteCount() >= byteCount) {
+                sPool[i] = sPool[--sPoolSize];
+                sPool[sPoolSize] = null;
+                bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+                bitmap.eraseColor(0);
+                return bitmap;
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * 归还位图，池满了的话直接recycle
+     */
+    public static void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        if (sPoolSize < MAX_POOL_SIZE && bitmap.isMutable()) {
+            sPool[sPoolSize++] = bitmap;
+        } else {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * 一次性读出位图的全部像素，返回的数组会被下一次调用复用
+     */
+    public static int[] getPixels(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (sPixels.length < width * height) {
+            sPixels = new int[width * height];
+        }
+        bitmap.getPixels(sPixels, 0, width, 0, 0, width, height);
+        return sPixels;
+    }
+
+    public static void clear() {
+        for (int i = 0; i < sPoolSize; i++) {
+            sPool[i].recycle();
+            sPool[i] = null;
+        }
+        sPoolSize = 0;
+    }
+}
@@ -0,0 +1,236 @@
+package com.javayhu.kiss.views.common;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.util.LruCache;
+import android.view.Gravity;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * 不依赖view的badge渲染，把badge画到Bitmap中，用于通知的largeIcon、桌面小部件的RemoteViews和快捷方式图标
+ * <p>
+ * 1.可以只渲染badge，也可以把badge按样式的gravity叠加到一张底图上
+ * 2.结果按显示的文字和底图缓存在LruCache中，同一个数字第二次直接返回缓存的bitmap
+ * 3.渲染和缓存的读写在同一个锁内，同一个结果只会渲染一次；绘制使用自己复制的Paint，不会和主线程上的badge共用样式中的Paint
+ * 4.返回的bitmap是缓存共用的，调用方不能修改或者recycle；底图在绘制之后修改过的话会重新渲染
+ * 5.缓存只弱引用底图，不会让调用方已经不用的底图一直留在内存中，底图被回收之后对应的结果随LRU淘汰
+ * <p>
+ * 用法：new BadgeBitmapRenderer(BadgeFactory.circleStyle(context)).render(icon, 5);
+ */
+public class BadgeBitmapRenderer {
+
+    private static final int DEFAULT_MAX_SIZE = 512 * 1024;//512KB
+
+    //只用来排版和绘制，不会attach到view上，使用自己的Paint
+    private final BadgeDrawable mDrawable;
+    private final LruCache<Key, Bitmap> mCache;
+    private final Key mLookupKey = new Key();
+    private final Canvas mCanvas = new Canvas();
+    private final Rect mContainer = new Rect();
+    private final Rect mBadgeBounds = new Rect();
+    private int mHorizontalOffset;
+    private int mVerticalOffset;
+
+    public BadgeBitmapRenderer(BadgeStyle style) {
+        this(style, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize 缓存的内存上限，单位byte
+     */
+    public BadgeBitmapRenderer(BadgeStyle style, int maxSize) {
+        mDrawable = new BadgeDrawable(style, true);
+        mCache = new LruCache<Key, Bitmap>(maxSize) {
+            @Override
+            protected int sizeOf(Key key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    public synchronized BadgeBitmapRenderer setStyle(BadgeStyle style) {
+        if (style != mDrawable.getStyle()) {
+            mDrawable.setStyle(style);
+            mCache.evictAll();
+        }
+        return this;
+    }
+
+    public synchronized BadgeStyle getStyle() {
+        return mDrawable.getStyle();
+    }
+
+    /**
+     * 设置render(int)时数字的显示格式，默认是BadgeNumberFormatter.exact()
+     */
+    public synchronized BadgeBitmapRenderer setBadgeNumberFormatter(BadgeNumberFormatter formatter) {
+        mDrawable.setBadgeNumberFormatter(formatter);
+        mCache.evictAll();
+        return this;
+    }
+
+    /**
+     * @param horizontal 叠加到底图上时，按gravity放置之后水平方向的偏移，单位px
+     * @param vertical   叠加到底图上时，按gravity放置之后垂直方向的偏移，单位px
+     */
+    public synchronized BadgeBitmapRenderer setOffset(int horizontal, int vertical) {
+        if (horizontal != mHorizontalOffset || vertical != mVerticalOffset) {
+            mHorizontalOffset = horizontal;
+            mVerticalOffset = vertical;
+            mCache.evictAll();
+        }
+        return this;
+    }
+
+    /**
+     * 只渲染badge，bitmap的大小就是badge的大小
+     */
+    public Bitmap render(int count) {
+        return render(null, count);
+    }
+
+    public Bitmap render(String text) {
+        return render(null, text);
+    }
+
+    /**
+     * 把badge叠加到底图上，结果和底图一样大
+     *
+     * @param base 底图，null表示只渲染badge
+     */
+    public synchronized Bitmap render(Bitmap base, int count) {
+        mDrawable.setBadgeCount(count);
+        return renderCurrent(base);
+    }
+
+    public synchronized Bitmap render(Bitmap base, String text) {
+        mDrawable.setBadgeCount(text);
+        return renderCurrent(base);
+    }
+
+    public synchronized void clear() {
+        mCache.evictAll();
+    }
+
+    public synchronized int getCacheSize() {
+        return mCache.size();
+    }
+
+    private Bitmap renderCurrent(Bitmap base) {
+        BadgeDrawable drawable = mDrawable;
+        mLookupKey.set(drawable.getShowText(), drawable.getShowTextLength(), base);
+        Bitmap result = mCache.get(mLookupKey);
+        if (result != null) {
+            mLookupKey.base = null;
+            return result;
+        }
+        int badgeWidth = Math.max(drawable.getIntrinsicWidth(), 1);
+        int badgeHeight = Math.max(drawable.getIntrinsicHeight(), 1);
+        Canvas canvas = mCanvas;
+        if (base == null) {
+            result = Bitmap.createBitmap(badgeWidth, badgeHeight, Bitmap.Config.ARGB_8888);
+            drawable.setBounds(0, 0, badgeWidth, badgeHeight);
+            canvas.setBitmap(result);
+        } else {
+            result = Bitmap.createBitmap(base.getWidth(), base.getHeight(), Bitmap.Config.ARGB_8888);
+            mContainer.set(0, 0, base.getWidth(), base.getHeight());
+            Gravity.apply(drawable.getBadgeGravity(), badgeWidth, badgeHeight, mContainer,
+                    mHorizontalOffset, mVerticalOffset, mBadgeBounds);
+            drawable.setBounds(mBadgeBounds);
+            canvas.setBitmap(result);
+            canvas.drawBitmap(base, 0, 0, null);
+        }
+        drawable.draw(canvas);
+        canvas.setBitmap(null);
+        mCache.put(new Key(mLookupKey), result);
+        mLookupKey.base = null;
+        return result;
+    }
+
+    /**
+     * 缓存的key：显示的文字和底图，样式和偏移对整个缓存是一样的
+     * <p>
+     * 查找用的key直接引用底图，放进缓存的key只保存底图的弱引用
+     */
+    private static class Key {
+        char[] text;
+        int textLength;
+        boolean hasBase;
+        Bitmap base;
+        WeakReference<Bitmap> baseRef;
+        //底图用引用比较，同一张底图内容变化后generationId会变化
+        int baseIdentity;
+        int baseGeneration;
+        int baseWidth;
+        int baseHeight;
+
+        Key() {
+        }
+
+        Key(Key other) {
+            text = Arrays.copyOf(other.text, other.textLength);
+            textLength = other.textLength;
+            hasBase = other.hasBase;
+            baseRef = other.base != null ? new WeakReference<>(other.base) : null;
+            baseIdentity = other.baseIdentity;
+            baseGeneration = other.baseGeneration;
+            baseWidth = other.baseWidth;
+            baseHeight = other.baseHeight;
+        }
+
+        void set(char[] text, int textLength, Bitmap base) {
+            this.text = text;
+            this.textLength = textLength;
+            this.hasBase = base != null;
+            this.base = base;
+            this.baseRef = null;
+            this.baseIdentity = System.identityHashCode(base);
+            this.baseGeneration = base != null ? base.getGenerationId() : 0;
+            this.baseWidth = base != null ? base.getWidth() : 0;
+            this.baseHeight = base != null ? base.getHeight() : 0;
+        }
+
+        Bitmap getBase() {
+            return base != null ? base : baseRef != null ? baseRef.get() : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            if (hasBase != key.hasBase || baseIdentity != key.baseIdentity || baseGeneration != key.baseGeneration
+                    || baseWidth != key.baseWidth || baseHeight != key.baseHeight || textLength != key.textLength) {
+                return false;
+            }
+            //底图已经被回收的key不会和其他key相等
+            if (hasBase) {
+                Bitmap base = getBase();
+                if (base == null || base != key.getBase()) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < textLength; i++) {
+                if (text[i] != key.text[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = baseIdentity;
+            result = 31 * result + baseGeneration;
+            result = 31 * result + baseWidth;
+            result = 31 * result + baseHeight;
+            for (int i = 0; i < textLength; i++) {
+                result = 31 * result + text[i];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.javayhu.kiss.views.common;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程安全的badge计数中心
+ * <p>
+ * 1.计数可以在任意线程通过increment/decrement/set修改，使用原子操作，不加锁
+ * 2.绑定的Badge只在主线程更新，每一帧最多更新一次，多次修改只以最后的值为准
+ * 3.bind/unbind只能在主线程调用
+ * 4.绑定的Badge是弱引用，没有unbind的badge随着页面一起回收，不会因为这个全局的单例泄漏Activity
+ * 5.不再使用的计数通过remove删除
+ * <p>
+ * 用法：BadgeCounterRegistry.getInstance().bind("inbox", badge); 之后在任意线程 increment("inbox")
+ */
+public class BadgeCounterRegistry {
+
+    private static volatile BadgeCounterRegistry sInstance;
+
+    private final ConcurrentHashMap<String, Counter> mCounters = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Counter> mDirtyCounters = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean mFrameScheduled = new AtomicBoolean();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            dispatch();
+        }
+    };
+
+    private final Runnable mScheduleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    };
+
+    public static BadgeCounterRegistry getInstance() {
+        if (sInstance == null) {
+            synchronized (BadgeCounterRegistry.class) {
+                if (sInstance == null) {
+                    sInstance = new BadgeCounterRegistry();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    public int increment(String id) {
+        return add(id, 1);
+    }
+
+    public int decrement(String id) {
+        return add(id, -1);
+    }
+
+    public int add(String id, int delta) {
+        Counter counter = obtainCounter(id);
+        int value = counter.value.addAndGet(delta);
+        markDirty(counter);
+        return value;
+    }
+
+    public void set(String id, int value) {
+        Counter counter = obtainCounter(id);
+        counter.value.set(value);
+        markDirty(counter);
+    }
+
+    public int get(String id) {
+        Counter counter = mCounters.get(id);
+        return counter == null ? 0 : counter.value.get();
+    }
+
+    /**
+     * 绑定之后badge立即显示当前的计数，只能在主线程调用
+     */
+    public void bind(String id, Badge badge) {
+        Counter counter = obtainCounter(id);
+        if (counter.indexOf(badge) < 0) {
+            counter.badges.add(new WeakReference<>(badge));
+        }
+        badge.setBadgeNumber(counter.value.get());
+    }
+
+    /**
+     * 只能在主线程调用
+     */
+    public void unbind(String id, Badge badge) {
+        Counter counter = mCounters.get(id);
+        if (counter != null) {
+            int index = counter.indexOf(badge);
+            if (index >= 0) {
+                counter.badges.remove(index);
+            }
+        }
+    }
+
+    /**
+     * 删除计数以及它绑定的badge，只能在主线程调用
+     * <p>
+     * 删除之后对这个id的修改会创建新的计数；和remove同时进行的修改可能会丢失
+     */
+    public void remove(String id) {
+        Counter counter = mCounters.remove(id);
+        if (counter != null) {
+            counter.badges.clear();
+        }
+    }
+
+    /**
+     * @return 计数的个数
+     */
+    public int size() {
+        return mCounters.size();
+    }
+
+    private Counter obtainCounter(String id) {
+        Counter counter = mCounters.get(id);
+        if (counter == null) {
+            Counter newCounter = new Counter();
+            counter = mCounters.putIfAbsent(id, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
+    //同一个计数在下一帧之前只入队一次
+    private void markDirty(Counter counter) {
+        if (counter.dirty.compareAndSet(false, true)) {
+            mDirtyCounters.offer(counter);
+            scheduleFrame();
+        }
+    }
+
+    private void scheduleFrame() {
+        if (mFrameScheduled.compareAndSet(false, true)) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                Choreographer.getInstance().postFrameCallback(mFrameCallback);
+            } else {
+                mMainHandler.post(mScheduleRunnable);
+            }
+        }
+    }
+
+    //主线程：先清除标记再读取计数，读取之后的修改会让计数重新入队，已经被回收的badge顺便移除
+    private void dispatch() {
+        mFrameScheduled.set(false);
+        Counter counter;
+        while ((counter = mDirtyCounters.poll()) != null) {
+            counter.dirty.set(false);
+            int value = counter.value.get();
+            List<WeakReference<Badge>> badges = counter.badges;
+            for (int i = badges.size() - 1; i >= 0; i--) {
+                Badge badge = badges.get(i).get();
+                if (badge == null) {
+                    badges.remove(i);
+                } else {
+                    badge.setBadgeNumber(value);
+                }
+            }
+        }
+    }
+
+    private static class Counter {
+        final AtomicInteger value = new AtomicInteger();
+        final AtomicBoolean dirty = new AtomicBoolean();
+        //只在主线程访问
+        final List<WeakReference<Badge>> badges = new ArrayList<>();
+
+        //查找的同时移除已经被回收的badge
+        int indexOf(Badge badge) {
+            for (int i = badges.size() - 1; i >= 0; i--) {
+                Badge bound = badges.get(i).get();
+                if (bound == null) {
+                    badges.remove(i);
+                } else if (bound == badge) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
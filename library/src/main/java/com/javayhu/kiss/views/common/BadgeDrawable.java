@@ -0,0 +1,388 @@
+package com.javayhu.kiss.views.common;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.view.Gravity;
+import android.view.View;
+
+import com.javayhu.kiss.views.R;
+
+/**
+ * 以Drawable形式绘制的badge，形状和BadgeView一致 (2-2)
+ * <p>
+ * 1.BadgeView内部也是用它来绘制的
+ * 2.通过bind可以直接添加到任意view的ViewOverlay中，不需要像BadgeView那样用FrameLayout包装目标view，
+ * 不会增加布局层级，也不会修改目标view的LayoutParams和padding
+ * 3.数字、颜色和形状的变化只会刷新overlay，不会触发requestLayout
+ * 4.overlay中的内容只能绘制在目标view的范围内，badge按照gravity放在目标view的内部
+ * 5.外观由共用的BadgeStyle决定，每个badge只保存数字和位置；修改外观时换成一个新的BadgeStyle，不会影响其他badge
+ * <p>
+ * 用法：BadgeDrawable.obtain(view).setStyle(BadgeFactory.getCircleStyle(context)).setBadgeCount(3);
+ */
+public class BadgeDrawable extends Drawable {
+
+    private static final BadgeNumberFormatter EXACT_FORMATTER = BadgeNumberFormatter.exact();
+
+    //只在主线程计算位置，所有badge共用
+    private static final Rect sHostRect = new Rect();
+    private static final Rect sBadgeRect = new Rect();
+
+    private BadgeStyle style;
+
+    private char[] showText = new char[BadgeNumberFormatter.MAX_LENGTH];
+    private int showTextLength = 0;
+    private BadgeNumberFormatter numberFormatter = EXACT_FORMATTER;
+
+    //bounds对应的形状区域，在onBoundsChange中更新
+    private final RectF shapeRect = new RectF();
+
+    //setAlpha/setColorFilter时不能修改共用的Paint，这时才创建自己的Paint；在后台线程绘制时始终使用自己的Paint
+    private final boolean ownPaints;
+    private Paint ownNumberPaint;
+    private Paint ownBackgroundPaint;
+    private int alpha = 255;
+    private ColorFilter colorFilter;
+
+    //绑定到目标view的overlay时的位置
+    private View hostView;
+    private int horizontalOffset;
+    private int verticalOffset;
+    private View.OnLayoutChangeListener layoutChangeListener;
+
+    public BadgeDrawable(Context context) {
+        this(BadgeStyle.getDefault(context));
+    }
+
+    public BadgeDrawable(BadgeStyle style) {
+        this(style, false);
+    }
+
+    /**
+     * @param ownPaints 是否总是使用自己的Paint，不和其他badge共用样式中的Paint，用于在后台线程中绘制(见BadgeBitmapRenderer)
+     */
+    BadgeDrawable(BadgeStyle style, boolean ownPaints) {
+        if (style == null) {
+            throw new IllegalStateException("style can not be null");
+        }
+        this.style = style;
+        this.ownPaints = ownPaints;
+        updateAlphaPaints();
+    }
+
+    /**
+     * 目标view已经绑定过BadgeDrawable的话直接返回，否则创建一个新的并绑定
+     */
+    public static BadgeDrawable obtain(View view) {
+        BadgeDrawable badge = findBadge(view);
+        if (badge == null) {
+            badge = new BadgeDrawable(view.getContext()).bind(view);
+        }
+        return badge;
+    }
+
+    /**
+     * @return 绑定在view上的BadgeDrawable，没有的话返回null
+     */
+    public static BadgeDrawable findBadge(View view) {
+        Object badge = view.getTag(R.id.badge_tag);
+        return badge instanceof BadgeDrawable ? (BadgeDrawable) badge : null;
+    }
+
+    /**
+     * 添加到view的ViewOverlay中，不会改变view的布局
+     */
+    public BadgeDrawable bind(View view) {
+        if (view == null) {
+            throw new IllegalStateException("view can not be null");
+        }
+        if (hostView == view) {
+            return this;
+        }
+        unbind();
+        BadgeDrawable boundBadge = findBadge(view);
+        if (boundBadge != null) {
+            boundBadge.unbind();
+        }
+        hostView = view;
+        view.setTag(R.id.badge_tag, this);
+        if (layoutChangeListener == null) {
+            layoutChangeListener = new View.OnLayoutChangeListener() {
+                @Override
+                public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                           int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                    if (right - left != oldRight - oldLeft || bottom - top != oldBottom - oldTop) {
+                        updateHostBounds();
+                    }
+                }
+            };
+        }
+        view.addOnLayoutChangeListener(layoutChangeListener);
+        view.getOverlay().add(this);
+        updateHostBounds();
+        return this;
+    }
+
+    public boolean unbind() {
+        if (hostView == null) {
+            return false;
+        }
+        hostView.getOverlay().remove(this);
+        hostView.removeOnLayoutChangeListener(layoutChangeListener);
+        if (hostView.getTag(R.id.badge_tag) == this) {
+            hostView.setTag(R.id.badge_tag, null);
+        }
+        hostView = null;
+        return true;
+    }
+
+    //按gravity把badge放在目标view的范围内，只修改bounds
+    private void updateHostBounds() {
+        if (hostView == null) {
+            return;
+        }
+        sHostRect.set(0, 0, hostView.getWidth(), hostView.getHeight());
+        Gravity.apply(style.gravity, getIntrinsicWidth(), getIntrinsicHeight(), sHostRect,
+                horizontalOffset, verticalOffset, sBadgeRect, hostView.getLayoutDirection());
+        setBounds(sBadgeRect);
+        invalidateSelf();
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        shapeRect.set(bounds);
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        BadgeStyle style = this.style;
+        Paint numberPaint = ownNumberPaint != null ? ownNumberPaint : style.numberPaint;
+        Paint backgroundPaint = ownBackgroundPaint != null ? ownBackgroundPaint : style.backgroundPaint;
+        BadgeRenderer.drawShapeBadge(canvas, style.shape, shapeRect, style.roundRectRadius, showText, showTextLength,
+                style.textOffsetY, backgroundPaint, numberPaint);
+    }
+
+    /**
+     * 没有调用setSize的时候，高度是文字高度加上padding，宽度至少和高度一样
+     */
+    @Override
+    public int getIntrinsicWidth() {
+        if (style.width >= 0) {
+            return style.width;
+        }
+        Paint numberPaint = ownNumberPaint != null ? ownNumberPaint : style.numberPaint;
+        float textWidth = numberPaint.measureText(showText, 0, showTextLength);
+        return Math.max(getIntrinsicHeight(), (int) Math.ceil(textWidth + style.padding * 2));
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        if (style.height >= 0) {
+            return style.height;
+        }
+        return (int) Math.ceil(style.textHeight + style.padding * 2);
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        this.alpha = alpha;
+        updateAlphaPaints();
+        invalidateSelf();
+    }
+
+    @Override
+    public int getAlpha() {
+        return alpha;
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        this.colorFilter = colorFilter;
+        updateAlphaPaints();
+        invalidateSelf();
+    }
+
+    //只有透明度或者ColorFilter不是默认值的时候才使用自己的Paint
+    private void updateAlphaPaints() {
+        if (alpha == 255 && colorFilter == null && !ownPaints) {
+            ownNumberPaint = null;
+            ownBackgroundPaint = null;
+            return;
+        }
+        if (ownNumberPaint == null) {
+            ownNumberPaint = new Paint(style.numberPaint);
+            ownBackgroundPaint = new Paint(style.backgroundPaint);
+        }
+        ownNumberPaint.set(style.numberPaint);
+        ownNumberPaint.setAlpha(Color.alpha(style.textColor) * alpha / 255);
+        ownNumberPaint.setColorFilter(colorFilter);
+        ownBackgroundPaint.set(style.backgroundPaint);
+        ownBackgroundPaint.setAlpha(Color.alpha(style.backgroundColor) * alpha / 255);
+        ownBackgroundPaint.setColorFilter(colorFilter);
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    //内容变化：大小可能变化的时候重新计算位置，否则只刷新
+    private void onContentChanged(boolean sizeChanged) {
+        if (sizeChanged && hostView != null) {
+            updateHostBounds();
+        } else {
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * 换成另一个样式，样式是共用的，不会被修改
+     */
+    public BadgeDrawable setStyle(BadgeStyle style) {
+        if (style == null) {
+            throw new IllegalStateException("style can not be null");
+        }
+        if (style == this.style) {
+            return this;
+        }
+        this.style = style;
+        updateAlphaPaints();
+        onContentChanged(true);
+        return this;
+    }
+
+    public BadgeStyle getStyle() {
+        return style;
+    }
+
+    //以下setter都是在当前样式的基础上创建新的样式
+
+    public BadgeDrawable setShape(int shape) {
+        return setStyle(style.withShape(shape));
+    }
+
+    public int getShape() {
+        return style.shape;
+    }
+
+    /**
+     * @param width  单位px，BadgeStyle.SIZE_WRAP_CONTENT表示根据文字计算
+     * @param height 单位px，BadgeStyle.SIZE_WRAP_CONTENT表示根据文字计算
+     */
+    public BadgeDrawable setSize(int width, int height) {
+        return setStyle(style.withSize(width, height));
+    }
+
+    /**
+     * @param padding 没有指定大小时文字四周的空白，单位px
+     */
+    public BadgeDrawable setPadding(float padding) {
+        return setStyle(style.withPadding(padding));
+    }
+
+    /**
+     * @param textSize 单位px
+     */
+    public BadgeDrawable setTextSize(float textSize) {
+        return setStyle(style.withTextSize(textSize));
+    }
+
+    public float getTextSize() {
+        return style.textSize;
+    }
+
+    public BadgeDrawable setTextColor(int color) {
+        return setStyle(style.withTextColor(color));
+    }
+
+    public int getTextColor() {
+        return style.textColor;
+    }
+
+    public BadgeDrawable setBadgeBackground(int color) {
+        return setStyle(style.withBackgroundColor(color));
+    }
+
+    public int getBadgeBackground() {
+        return style.backgroundColor;
+    }
+
+    public BadgeDrawable setBadgeCount(int count) {
+        if (count > 0) {
+            showTextLength = numberFormatter.format(count, showText);
+        } else {
+            //0和负数很少出现，直接按原样显示
+            setShowText(String.valueOf(count));
+        }
+        onContentChanged(style.width < 0);
+        return this;
+    }
+
+    public BadgeDrawable setBadgeCount(String count) {
+        setShowText(count == null ? "" : count);
+        onContentChanged(style.width < 0);
+        return this;
+    }
+
+    public String getBadgeCount() {
+        return new String(showText, 0, showTextLength);
+    }
+
+    /**
+     * 设置setBadgeCount(int)时数字的显示格式，默认是BadgeNumberFormatter.exact()
+     */
+    public BadgeDrawable setBadgeNumberFormatter(BadgeNumberFormatter formatter) {
+        if (formatter == null) {
+            throw new IllegalStateException("formatter can not be null");
+        }
+        numberFormatter = formatter;
+        return this;
+    }
+
+    /**
+     * 绑定到view的overlay时badge在view中的位置
+     *
+     * @param gravity 例如Gravity.END | Gravity.TOP(默认)
+     */
+    public BadgeDrawable setBadgeGravity(int gravity) {
+        return setStyle(style.withGravity(gravity));
+    }
+
+    public int getBadgeGravity() {
+        return style.gravity;
+    }
+
+    /**
+     * @param horizontal 按gravity放置之后水平方向的偏移，单位px
+     * @param vertical   按gravity放置之后垂直方向的偏移，单位px
+     */
+    public BadgeDrawable setOffset(int horizontal, int vertical) {
+        horizontalOffset = horizontal;
+        verticalOffset = vertical;
+        onContentChanged(true);
+        return this;
+    }
+
+    char[] getShowText() {
+        return showText;
+    }
+
+    int getShowTextLength() {
+        return showTextLength;
+    }
+
+    private void setShowText(String text) {
+        if (text.length() > showText.length) {
+            showText = new char[text.length()];
+        }
+        text.getChars(0, text.length(), showText, 0);
+        showTextLength = text.length();
+    }
+}
@@ -1,43 +1,126 @@
 package com.javayhu.kiss.views.common;
 
 import android.content.Context;
+import android.graphics.Color;
 import android.view.Gravity;
 
 /**
  * BadgeView(2-2)
  * <p>
+ * 1.常用的样式只创建一次，所有badge共用，屏幕密度变化时重新创建
+ * 2.xxxStyle方法返回的样式也可以直接用在BadgeDrawable和BadgeBitmapRenderer上，可以在任意线程调用
+ * <p>
  * https://github.com/AlexLiuSheng/BadgeView
  * <p>
  * Created by Allen Liu on 2016/7/15.
  */
 public class BadgeFactory {
 
+    private static final int STYLE_DOT = 0;
+    private static final int STYLE_CIRCLE = 1;
+    private static final int STYLE_RECTANGLE = 2;
+    private static final int STYLE_OVAL = 3;
+    private static final int STYLE_SQUARE = 4;
+    private static final int STYLE_ROUND_RECT = 5;
+
+    private static final BadgeStyle[] sStyles = new BadgeStyle[6];
+    private static float sDensity;
+    private static float sScaledDensity;
+
     public static BadgeView createDot(Context context) {
-        return new BadgeView(context).setWidthAndHeight(10, 10).setTextSize(0).setBadgeGravity(Gravity.RIGHT | Gravity.TOP).setShape(BadgeView.SHAPE_CIRCLE);
+        return new BadgeView(context).setBadgeStyle(dotStyle(context));
     }
 
     public static BadgeView createCircle(Context context) {
-        return new BadgeView(context).setWidthAndHeight(20, 20).setTextSize(12).setBadgeGravity(Gravity.RIGHT | Gravity.TOP).setShape(BadgeView.SHAPE_CIRCLE);
+        return new BadgeView(context).setBadgeStyle(circleStyle(context));
     }
 
     public static BadgeView createRectangle(Context context) {
-        return new BadgeView(context).setWidthAndHeight(25, 20).setTextSize(12).setBadgeGravity(Gravity.RIGHT | Gravity.TOP).setShape(BadgeView.SHAPE_RECTANGLE);
+        return new BadgeView(context).setBadgeStyle(rectangleStyle(context));
     }
 
     public static BadgeView createOval(Context context) {
-        return new BadgeView(context).setWidthAndHeight(25, 20).setTextSize(12).setBadgeGravity(Gravity.RIGHT | Gravity.TOP).setShape(BadgeView.SHAPE_OVAL);
+        return new BadgeView(context).setBadgeStyle(ovalStyle(context));
     }
 
     public static BadgeView createSquare(Context context) {
-        return new BadgeView(context).setWidthAndHeight(20, 20).setTextSize(12).setBadgeGravity(Gravity.RIGHT | Gravity.TOP).setShape(BadgeView.SHAPE_SQUARE);
+        return new BadgeView(context).setBadgeStyle(squareStyle(context));
     }
 
     public static BadgeView createRoundRect(Context context) {
-        return new BadgeView(context).setWidthAndHeight(25, 20).setTextSize(12).setBadgeGravity(Gravity.RIGHT | Gravity.TOP).setShape(BadgeView.SHAPE_ROUND_RECTANGLE);
+        return new BadgeView(context).setBadgeStyle(roundRectStyle(context));
     }
 
     public static BadgeView create(Context context) {
         return new BadgeView(context);
     }
 
-}
\ No newline at end of file
+    public static BadgeStyle dotStyle(Context context) {
+        return obtainStyle(context, STYLE_DOT);
+    }
+
+    public static BadgeStyle circleStyle(Context context) {
+        return obtainStyle(context, STYLE_CIRCLE);
+    }
+
+    public static BadgeStyle rectangleStyle(Context context) {
+        return obtainStyle(context, STYLE_RECTANGLE);
+    }
+
+    public static BadgeStyle ovalStyle(Context context) {
+        return obtainStyle(context, STYLE_OVAL);
+    }
+
+    public static BadgeStyle squareStyle(Context context) {
+        return obtainStyle(context, STYLE_SQUARE);
+    }
+
+    public static BadgeStyle roundRectStyle(Context context) {
+        return obtainStyle(context, STYLE_ROUND_RECT);
+    }
+
+    private static synchronized BadgeStyle obtainStyle(Context context, int type) {
+        float density = context.getResources().getDisplayMetrics().density;
+        float scaledDensity = context.getResources().getDisplayMetrics().scaledDensity;
+        if (density != sDensity || scaledDensity != sScaledDensity) {
+            for (int i = 0; i < sStyles.length; i++) {
+                sStyles[i] = null;
+            }
+            sDensity = density;
+            sScaledDensity = scaledDensity;
+        }
+        BadgeStyle style = sStyles[type];
+        if (style == null) {
+            style = sStyles[type] = createStyle(context, type);
+        }
+        return style;
+    }
+
+    private static BadgeStyle createStyle(Context context, int type) {
+        BadgeStyle base = BadgeStyle.getDefault(context).withTextColor(Color.WHITE).withBackgroundColor(Color.RED)
+                .withGravity(Gravity.RIGHT | Gravity.TOP);
+        switch (type) {
+            case STYLE_DOT:
+                return base.withSize(dip2px(10), dip2px(10)).withTextSize(0).withShape(BadgeView.SHAPE_CIRCLE);
+            case STYLE_CIRCLE:
+                return base.withSize(dip2px(20), dip2px(20)).withTextSize(sp2px(12)).withShape(BadgeView.SHAPE_CIRCLE);
+            case STYLE_RECTANGLE:
+                return base.withSize(dip2px(25), dip2px(20)).withTextSize(sp2px(12)).withShape(BadgeView.SHAPE_RECTANGLE);
+            case STYLE_OVAL:
+                return base.withSize(dip2px(25), dip2px(20)).withTextSize(sp2px(12)).withShape(BadgeView.SHAPE_OVAL);
+            case STYLE_SQUARE:
+                return base.withSize(dip2px(20), dip2px(20)).withTextSize(sp2px(12)).withShape(BadgeView.SHAPE_SQUARE);
+            default:
+                return base.withSize(dip2px(25), dip2px(20)).withTextSize(sp2px(12)).withShape(BadgeView.SHAPE_ROUND_RECTANGLE);
+        }
+    }
+
+    private static int dip2px(int dip) {
+        return (int) (dip * sDensity + 0.5f);
+    }
+
+    private static int sp2px(float sp) {
+        return (int) (sp * sScaledDensity + 0.5f);
+    }
+
+}
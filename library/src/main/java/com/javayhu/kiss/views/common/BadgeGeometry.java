@@ -0,0 +1,55 @@
+package com.javayhu.kiss.views.common;
+
+/**
+ * 拖拽badge时橡皮筋形状用到的几何计算
+ * <p>
+ * 只依赖float运算，不使用三角函数，不创建对象，也不依赖android的类
+ */
+public final class BadgeGeometry {
+
+    private BadgeGeometry() {
+    }
+
+    /**
+     * 两点之间的欧氏距离
+     */
+    public static float distance(float x1, float y1, float x2, float y2) {
+        float dx = x1 - x2;
+        float dy = y1 - y2;
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * 过圆心作方向(dx, dy)的垂线，求垂线和圆的两个交点
+     * <p>
+     * 垂直方向的单位向量取x分量不小于0的那个，和原来用atan(-dx / dy)求角度再取cos、sin的结果一致：
+     * dy为0时是(0, -sign(dx))，dx为0或者两点重合时是(1, 0)
+     * <p>
+     * 原来的公式：http://blog.csdn.net/mabeijianxi/article/details/50560361
+     *
+     * @param out    依次写入x0, y0, x1, y1，第一个点是圆心加上单位向量乘以半径，第二个点是减去
+     * @param offset 写入out的起始位置
+     */
+    public static void perpendicularPoints(float centerX, float centerY, float radius,
+                                           float dx, float dy, float[] out, int offset) {
+        //(dy, -dx)和(dx, dy)垂直，dy小于0时取反，保证x分量不小于0
+        float px = dy < 0 ? -dy : dy;
+        float py = dy < 0 ? dx : -dx;
+        float length = (float) Math.sqrt(px * px + py * py);
+        float ux;
+        float uy;
+        if (length == 0) {
+            ux = 1;
+            uy = 0;
+        } else {
+            ux = px / length;
+            uy = py / length;
+        }
+        float xOffset = ux * radius;
+        float yOffset = uy * radius;
+        out[offset] = centerX + xOffset;
+        out[offset + 1] = centerY + yOffset;
+        out[offset + 2] = centerX - xOffset;
+        out[offset + 3] = centerY - yOffset;
+    }
+}
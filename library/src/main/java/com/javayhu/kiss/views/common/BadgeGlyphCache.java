@@ -0,0 +1,146 @@
+package com.javayhu.kiss.views.common;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+
+/**
+ * badge数字的字形缓存，数字滚动动画的每一帧都从这里取字形绘制
+ * <p>
+ * 1.同一种样式(字号、字体、是否加粗)只创建一份，字符的宽度只测量一次，字形预先渲染到ALPHA_8位图中
+ * 2.ALPHA_8位图绘制时使用Paint的颜色，所以颜色不同的badge也可以共用同一份缓存
+ * 3.超过MAX_STYLE_COUNT时丢掉最早的样式，字形位图不主动recycle，正在使用旧缓存的badge可以继续绘制，不再被引用之后由GC回收
+ * 4.只在主线程使用
+ */
+public class BadgeGlyphCache {
+
+    private static final int MAX_STYLE_COUNT = 8;
+
+    //样式很少，线性查找即可，查找时不需要创建key对象
+    private static final ArrayList<BadgeGlyphCache> sStyles = new ArrayList<>();
+
+    private final float mTextSize;
+    private final Typeface mTypeface;
+    private final boolean mFakeBold;
+
+    private final Paint mPaint;
+    private final char[] mChar = new char[1];
+    private final float mAscent;
+    private final float mDescent;
+    private final int mPadding;
+
+    //'0'-'9'直接按下标查找，其他字符(本地化数字、'+'、'k'等)放在SparseArray中
+    private final Glyph[] mDigits = new Glyph[10];
+    private final SparseArray<Glyph> mOthers = new SparseArray<>();
+
+    private BadgeGlyphCache(float textSize, Typeface typeface, boolean fakeBold) {
+        mTextSize = textSize;
+        mTypeface = typeface;
+        mFakeBold = fakeBold;
+        mPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.SUBPIXEL_TEXT_FLAG);
+        mPaint.setTextSize(textSize);
+        mPaint.setTypeface(typeface);
+        mPaint.setFakeBoldText(fakeBold);
+        Paint.FontMetrics fontMetrics = mPaint.getFontMetrics();
+        mAscent = fontMetrics.ascent;
+        mDescent = fontMetrics.descent;
+        //加粗和抗锯齿的边缘可能超出字符的宽度
+        mPadding = (int) Math.ceil(textSize / 10f) + 1;
+    }
+
+    /**
+     * 获取paint当前样式对应的字形缓存
+     */
+    public static BadgeGlyphCache obtain(Paint paint) {
+        float textSize = paint.getTextSize();
+        Typeface typeface = paint.getTypeface();
+        boolean fakeBold = paint.isFakeBoldText();
+        for (int i = sStyles.size() - 1; i >= 0; i--) {
+            BadgeGlyphCache cache = sStyles.get(i);
+            if (cache.mTextSize == textSize && cache.mTypeface == typeface && cache.mFakeBold == fakeBold) {
+                return cache;
+            }
+        }
+        if (sStyles.size() >= MAX_STYLE_COUNT) {
+            sStyles.remove(0);
+        }
+        BadgeGlyphCache cache = new BadgeGlyphCache(textSize, typeface, fakeBold);
+        sStyles.add(cache);
+        return cache;
+    }
+
+    public static void clear() {
+        sStyles.clear();
+    }
+
+    public float getAdvance(char c) {
+        return getGlyph(c).advance;
+    }
+
+    /**
+     * 和Paint.measureText(text, start, count)一致，但不需要重新测量
+     */
+    public float measure(char[] text, int start, int count) {
+        float width = 0;
+        for (int i = start; i < start + count; i++) {
+            width += getGlyph(text[i]).advance;
+        }
+        return width;
+    }
+
+    /**
+     * 以(x, baseline)为字符的起点绘制，颜色和透明度来自paint
+     */
+    public void draw(Canvas canvas, char c, float x, float baseline, Paint paint) {
+        Glyph glyph = getGlyph(c);
+        if (glyph.bitmap != null) {
+            canvas.drawBitmap(glyph.bitmap, x - mPadding, baseline + mAscent - mPadding, paint);
+        }
+    }
+
+    public float getAscent() {
+        return mAscent;
+    }
+
+    public float getDescent() {
+        return mDescent;
+    }
+
+    private Glyph getGlyph(char c) {
+        if (c >= '0' && c <= '9') {
+            Glyph glyph = mDigits[c - '0'];
+            if (glyph == null) {
+                glyph = mDigits[c - '0'] = createGlyph(c);
+            }
+            return glyph;
+        }
+        Glyph glyph = mOthers.get(c);
+        if (glyph == null) {
+            glyph = createGlyph(c);
+            mOthers.put(c, glyph);
+        }
+        return glyph;
+    }
+
+    private Glyph createGlyph(char c) {
+        mChar[0] = c;
+        Glyph glyph = new Glyph();
+        glyph.advance = mPaint.measureText(mChar, 0, 1);
+        int width = (int) Math.ceil(glyph.advance) + mPadding * 2;
+        int height = (int) Math.ceil(mDescent - mAscent) + mPadding * 2;
+        if (width > mPadding * 2 && height > mPadding * 2) {
+            glyph.bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+            new Canvas(glyph.bitmap).drawText(mChar, 0, 1, mPadding, mPadding - mAscent, mPaint);
+        }
+        return glyph;
+    }
+
+    private static class Glyph {
+        float advance;
+        Bitmap bitmap;
+    }
+}
@@ -0,0 +1,190 @@
+package com.javayhu.kiss.views.common;
+
+import android.util.SparseArray;
+import android.view.ViewGroup;
+
+import com.javayhu.kiss.views.R;
+
+import java.util.ArrayList;
+
+/**
+ * 同一个父容器中所有DraggableBadgeView的点击索引
+ * <p>
+ * 1.每个DraggableBadgeView都和父容器一样大，按下事件会依次分发给叠在一起的每个badge，原来每个badge都要自己判断一次距离，
+ * 而且先收到事件的badge优先，和看到的位置不一定一致
+ * 2.badge的中心按均匀网格存放，网格的边长是最大触摸半径的两倍，查找时只需要看按下位置所在的格子和周围8个格子
+ * 3.同一个按下事件只查找一次，结果是距离最近并且在触摸半径内的badge，其他badge直接放行，不在badge上的按下事件会传给下面的view
+ * 4.距离相同(例如几个badge叠在一起)时后加入索引的badge优先，和后添加到父容器的badge view画在上面一致
+ * 5.只在主线程使用
+ */
+public class BadgeHitIndex {
+
+    /**
+     * 一个badge在索引中的记录，由badge自己持有
+     */
+    public static class Entry {
+        BadgeHitIndex index;
+        int cell;
+        float x;
+        float y;
+        float radius;
+        //加入索引的顺序，越大越靠上
+        int order;
+
+        public boolean isRegistered() {
+            return index != null;
+        }
+    }
+
+    private final ArrayList<Entry> mEntries = new ArrayList<>();
+    private final SparseArray<ArrayList<Entry>> mCells = new SparseArray<>();
+    private float mMaxRadius;
+    private float mCellSize;
+    private int mNextOrder;
+
+    //上一次查找的按下事件和结果
+    private long mLastEventTime = Long.MIN_VALUE;
+    private float mLastX;
+    private float mLastY;
+    private Entry mLastTarget;
+
+    /**
+     * 获取父容器上的索引，没有的话就创建一个
+     */
+    public static BadgeHitIndex obtain(ViewGroup host) {
+        Object index = host.getTag(R.id.badge_hit_index);
+        if (index instanceof BadgeHitIndex) {
+            return (BadgeHitIndex) index;
+        }
+        BadgeHitIndex hitIndex = new BadgeHitIndex();
+        host.setTag(R.id.badge_hit_index, hitIndex);
+        return hitIndex;
+    }
+
+    /**
+     * 加入或者更新badge的位置，位置和半径都没变时直接返回
+     *
+     * @param x      badge中心在父容器中的坐标
+     * @param y      badge中心在父容器中的坐标
+     * @param radius 触摸半径
+     */
+    public void update(Entry entry, float x, float y, float radius) {
+        if (radius <= 0) {
+            remove(entry);
+            return;
+        }
+        if (entry.index != null && entry.index != this) {
+            entry.index.remove(entry);
+        }
+        if (entry.index == this && entry.x == x && entry.y == y && entry.radius == radius) {
+            return;
+        }
+        if (entry.index == this) {
+            removeFromCell(entry);
+        } else {
+            entry.index = this;
+            entry.order = mNextOrder++;
+            mEntries.add(entry);
+        }
+        entry.x = x;
+        entry.y = y;
+        entry.radius = radius;
+        if (radius > mMaxRadius) {
+            //格子要能覆盖最大的触摸半径，重新分配所有badge
+            mMaxRadius = radius;
+            mCellSize = radius * 2;
+            mCells.clear();
+            for (int i = 0, size = mEntries.size(); i < size; i++) {
+                addToCell(mEntries.get(i));
+            }
+        } else {
+            addToCell(entry);
+        }
+        mLastEventTime = Long.MIN_VALUE;
+    }
+
+    public void remove(Entry entry) {
+        if (entry.index != this) {
+            return;
+        }
+        removeFromCell(entry);
+        mEntries.remove(entry);
+        entry.index = null;
+        if (mLastTarget == entry) {
+            mLastTarget = null;
+        }
+        mLastEventTime = Long.MIN_VALUE;
+    }
+
+    /**
+     * 找到按下位置所在的badge，同一个事件只查找一次
+     *
+     * @param x         按下位置在父容器中的坐标
+     * @param y         按下位置在父容器中的坐标
+     * @param eventTime 事件的时间，用来识别同一个事件
+     * @return 距离最近并且在触摸半径内的badge，没有的话返回null
+     */
+    public Entry findTarget(float x, float y, long eventTime) {
+        if (eventTime == mLastEventTime && x == mLastX && y == mLastY) {
+            return mLastTarget;
+        }
+        Entry target = null;
+        if (mCellSize > 0) {
+            int cellX = toCell(x);
+            int cellY = toCell(y);
+            float minDistance = Float.MAX_VALUE;
+            for (int i = cellX - 1; i <= cellX + 1; i++) {
+                for (int j = cellY - 1; j <= cellY + 1; j++) {
+                    ArrayList<Entry> cell = mCells.get(cellKey(i, j));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int k = 0, size = cell.size(); k < size; k++) {
+                        Entry entry = cell.get(k);
+                        float distance = BadgeGeometry.distance(entry.x, entry.y, x, y);
+                        if (distance <= entry.radius && (distance < minDistance
+                                || distance == minDistance && entry.order > target.order)) {
+                            minDistance = distance;
+                            target = entry;
+                        }
+                    }
+                }
+            }
+        }
+        mLastEventTime = eventTime;
+        mLastX = x;
+        mLastY = y;
+        mLastTarget = target;
+        return target;
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    private void addToCell(Entry entry) {
+        entry.cell = cellKey(toCell(entry.x), toCell(entry.y));
+        ArrayList<Entry> cell = mCells.get(entry.cell);
+        if (cell == null) {
+            cell = new ArrayList<>(2);
+            mCells.put(entry.cell, cell);
+        }
+        cell.add(entry);
+    }
+
+    private void removeFromCell(Entry entry) {
+        ArrayList<Entry> cell = mCells.get(entry.cell);
+        if (cell != null) {
+            cell.remove(entry);
+        }
+    }
+
+    private int toCell(float value) {
+        return (int) Math.floor(value / mCellSize);
+    }
+
+    //格子坐标各取低16位，超出范围的格子可能重合，但查找时还会比较距离
+    private static int cellKey(int cellX, int cellY) {
+        return (cellX & 0xffff) << 16 | (cellY & 0xffff);
+    }
+}
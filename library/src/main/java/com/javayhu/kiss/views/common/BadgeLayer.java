@@ -0,0 +1,581 @@
+package com.javayhu.kiss.views.common;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PointF;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Build;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.FrameLayout;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * 在一个覆盖整个content区域的view中统一绘制页面上所有的badge
+ * <p>
+ * 1.每个DraggableBadgeView都是一个和父容器一样大的view，页面上badge很多的时候会多出大量参与measure/layout/draw的view
+ * 2.BadgeLayer只在content根布局上添加一个view，badge以记录的形式保存在数组中，在一次onDraw中全部画完
+ * 3.通过BadgeLayer添加的badge不支持拖拽消除，需要拖拽消除的请使用DraggableBadgeView
+ * 4.每个badge只在target的可见区域内绘制，target滚出父容器(例如RecyclerView、ScrollView)的部分不会画出来，
+ * 但是不会检测target是否被兄弟view遮挡
+ * 5.同一个target只有一条记录，复用的item重新addBadge时返回原来的记录
+ * 6.记录只弱引用target，target被回收之后记录在下一次onPreDraw时移除，不会让BadgeLayer拖住已经移除的view；
+ * 已经detach但还没有被回收的target不可见，不参与位置计算
+ * <p>
+ * 用法：BadgeLayer.obtain(activity).addBadge(targetView).setBadgeNumber(5);
+ */
+public class BadgeLayer extends View implements ViewTreeObserver.OnPreDrawListener {
+
+    private LayerBadge[] mBadges = new LayerBadge[16];
+    private int mBadgeCount;
+
+    private final int[] mLayerLocation = new int[2];
+    private final int[] mTargetLocation = new int[2];
+    private final Rect mVisibleRect = new Rect();
+    private final RectF mRect = new RectF();
+
+    //所有badge共用一个BadgeRenderer，相邻的badge样式相同时Paint不需要切换状态
+    private final BadgeRenderer mRenderer = new BadgeRenderer();
+    private float mRoundRectRadius;
+    private float mShadowRadius;
+    private float mShadowOffsetX;
+    private float mShadowOffsetY;
+    private BadgeNumberFormatter mBadgeNumberFormatter = BadgeNumberFormatter.capped(99);
+
+    //测试中不依赖Activity直接创建，正常使用请调用obtain
+    BadgeLayer(Context context) {
+        super(context);
+        mRoundRectRadius = dp2px(context, 10);
+        mShadowRadius = dp2px(context, 2f);
+        mShadowOffsetX = dp2px(context, 1);
+        mShadowOffsetY = dp2px(context, 1.5f);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            setTranslationZ(1000);
+        }
+    }
+
+    /**
+     * 获取activity上的BadgeLayer，没有的话就创建一个添加到content根布局的最上层
+     */
+    public static BadgeLayer obtain(Activity activity) {
+        ViewGroup content = (ViewGroup) activity.findViewById(android.R.id.content);
+        if (content == null) {
+            throw new IllegalStateException("activity must call setContentView before obtaining BadgeLayer");
+        }
+        for (int i = content.getChildCount() - 1; i >= 0; i--) {
+            View child = content.getChildAt(i);
+            if (child instanceof BadgeLayer) {
+                return (BadgeLayer) child;
+            }
+        }
+        BadgeLayer layer = new BadgeLayer(activity);
+        content.addView(layer, new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT,
+                FrameLayout.LayoutParams.MATCH_PARENT));
+        return layer;
+    }
+
+    /**
+     * target已经有badge的话直接返回原来的badge，调用方只需要更新badge的状态
+     */
+    public Badge addBadge(View targetView) {
+        Badge badge = findBadge(targetView);
+        if (badge != null) {
+            return badge;
+        }
+        return new LayerBadge(this).bindTarget(targetView);
+    }
+
+    /**
+     * @return 绑定在targetView上的badge，没有的话返回null
+     */
+    public Badge findBadge(View targetView) {
+        for (int i = 0; i < mBadgeCount; i++) {
+            if (mBadges[i].getTargetView() == targetView) {
+                return mBadges[i];
+            }
+        }
+        return null;
+    }
+
+    public void removeBadge(Badge badge) {
+        for (int i = 0; i < mBadgeCount; i++) {
+            if (mBadges[i] == badge) {
+                removeAt(i);
+                invalidate();
+                return;
+            }
+        }
+    }
+
+    public int getBadgeCount() {
+        return mBadgeCount;
+    }
+
+    /**
+     * 设置这个BadgeLayer上所有badge在非精确模式下数字的显示格式，默认是BadgeNumberFormatter.capped(99)
+     */
+    public BadgeLayer setBadgeNumberFormatter(BadgeNumberFormatter formatter) {
+        if (formatter == null) {
+            throw new IllegalStateException("formatter can not be null");
+        }
+        mBadgeNumberFormatter = formatter;
+        for (int i = 0; i < mBadgeCount; i++) {
+            mBadges[i].updateBadgeText();
+            mBadges[i].mTextDirty = true;
+        }
+        invalidate();
+        return this;
+    }
+
+    //一个target只保留一条记录，同一个target上的其他记录会被移除
+    private void add(LayerBadge badge) {
+        boolean added = false;
+        for (int i = mBadgeCount - 1; i >= 0; i--) {
+            if (mBadges[i] == badge) {
+                added = true;
+            } else if (mBadges[i].getTargetView() == badge.getTargetView()) {
+                removeAt(i);
+            }
+        }
+        if (added) {
+            return;
+        }
+        if (mBadgeCount == mBadges.length) {
+            LayerBadge[] badges = new LayerBadge[mBadgeCount * 2];
+            System.arraycopy(mBadges, 0, badges, 0, mBadgeCount);
+            mBadges = badges;
+        }
+        mBadges[mBadgeCount++] = badge;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(mBadges, index + 1, mBadges, index, mBadgeCount - index - 1);
+        mBadges[--mBadgeCount] = null;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnPreDrawListener(this);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getViewTreeObserver().removeOnPreDrawListener(this);
+        super.onDetachedFromWindow();
+    }
+
+    //每一帧绘制之前检查target的位置和可见区域，只有变化了才重绘；target已经被回收的记录直接移除
+    @Override
+    public boolean onPreDraw() {
+        getLocationInWindow(mLayerLocation);
+        boolean changed = false;
+        for (int i = 0; i < mBadgeCount; i++) {
+            LayerBadge badge = mBadges[i];
+            if (badge.getTargetView() == null) {
+                changed |= badge.mVisible;
+                removeAt(i--);
+                continue;
+            }
+            changed |= updatePosition(badge);
+        }
+        if (changed) {
+            invalidate();
+        }
+        return true;
+    }
+
+    private boolean updatePosition(LayerBadge badge) {
+        View target = badge.getTargetView();
+        boolean visible = badge.mBadgeNumber != 0 && target != null && target.isAttachedToWindow() && target.isShown()
+                && target.getGlobalVisibleRect(mVisibleRect);
+        if (!visible) {
+            if (badge.mVisible) {
+                badge.mVisible = false;
+                return true;
+            }
+            return false;
+        }
+        if (badge.mTextDirty) {
+            mRenderer.measureText(badge.mBadgeText, badge.mBadgeTextLength, badge.mBadgeNumberSize, badge.mTextMetrics);
+            badge.mTextDirty = false;
+        }
+        target.getLocationInWindow(mTargetLocation);
+        float left = mTargetLocation[0] - mLayerLocation[0];
+        float top = mTargetLocation[1] - mLayerLocation[1];
+        float right = left + target.getWidth();
+        float bottom = top + target.getHeight();
+        float x = badge.mBadgeCenter.x;
+        float y = badge.mBadgeCenter.y;
+        findBadgeCenter(badge, left, top, right, bottom);
+        //可见区域是window坐标，转换到BadgeLayer的坐标
+        mVisibleRect.offset(-mLayerLocation[0], -mLayerLocation[1]);
+        boolean changed = !badge.mVisible || x != badge.mBadgeCenter.x || y != badge.mBadgeCenter.y
+                || !mVisibleRect.equals(badge.mClipRect);
+        badge.mClipRect.set(mVisibleRect);
+        badge.mVisible = true;
+        return changed;
+    }
+
+    //和DraggableBadgeView.findBadgeCenter一致，只是相对于target的边界而不是父容器
+    private void findBadgeCenter(LayerBadge badge, float left, float top, float right, float bottom) {
+        Rect rect = badge.mBadgeNumberRect;
+        float padding = badge.mBadgePadding;
+        int offset = badge.mGravityOffset;
+        int rectWidth = rect.height() > rect.width() ? rect.height() : rect.width();
+        PointF center = badge.mBadgeCenter;
+        switch (badge.mBadgeGravity) {
+            case Gravity.START | Gravity.TOP:
+                center.x = left + offset + padding + rectWidth / 2f;
+                center.y = top + offset + padding + rect.height() / 2f;
+                break;
+            case Gravity.END | Gravity.TOP:
+                center.x = right - (offset + padding + rectWidth / 2f);
+                center.y = top + offset + padding + rect.height() / 2f;
+                break;
+            case Gravity.START | Gravity.BOTTOM:
+                center.x = left + offset + padding + rectWidth / 2f;
+                center.y = bottom - (offset + padding + rect.height() / 2f);
+                break;
+            case Gravity.END | Gravity.BOTTOM:
+                center.x = right - (offset + padding + rectWidth / 2f);
+                center.y = bottom - (offset + padding + rect.height() / 2f);
+                break;
+            case Gravity.CENTER:
+                center.x = (left + right) / 2f;
+                center.y = (top + bottom) / 2f;
+                break;
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        for (int i = 0; i < mBadgeCount; i++) {
+            LayerBadge badge = mBadges[i];
+            if (!badge.mVisible) {
+                continue;
+            }
+            int count = canvas.save();
+            canvas.clipRect(badge.mClipRect);
+            if (badge.mShowShadow) {
+                drawBadgeSprite(canvas, badge);
+            } else {
+                drawBadge(canvas, badge, badge.mBadgeCenter.x, badge.mBadgeCenter.y);
+            }
+            canvas.restoreToCount(count);
+        }
+    }
+
+    //硬件加速下setShadowLayer不起作用，带阴影的badge在软件canvas上光栅化成位图；
+    //开启了BadgeSpriteCache时位图放进共享缓存，否则只由这个badge自己持有
+    private void drawBadgeSprite(Canvas canvas, LayerBadge badge) {
+        badge.mSpriteKey.set(BadgeSpriteCache.KIND_LAYER, badge.mBadgeText, badge.mBadgeTextLength, 0, 0, badge.mColorBackground,
+                badge.mColorBadgeNumber, badge.mBadgeNumberSize, badge.mBadgePadding, true)
+                .setShadow(0, mShadowRadius, mShadowOffsetX, mShadowOffsetY);
+        Bitmap sprite;
+        if (BadgeSpriteCache.isEnabled()) {
+            badge.mShadowSprite = null;
+            badge.mShadowSpriteKey = null;
+            BadgeSpriteCache cache = BadgeSpriteCache.getInstance();
+            sprite = cache.get(badge.mSpriteKey);
+            if (sprite == null) {
+                sprite = createShadowSprite(badge);
+                cache.put(badge.mSpriteKey, sprite);
+            }
+        } else {
+            if (badge.mShadowSprite == null || !badge.mSpriteKey.equals(badge.mShadowSpriteKey)) {
+                badge.mShadowSprite = createShadowSprite(badge);
+                badge.mShadowSpriteKey = new BadgeSpriteCache.Key(badge.mSpriteKey);
+            }
+            sprite = badge.mShadowSprite;
+        }
+        canvas.drawBitmap(sprite, badge.mBadgeCenter.x - sprite.getWidth() / 2f,
+                badge.mBadgeCenter.y - sprite.getHeight() / 2f, null);
+    }
+
+    private Bitmap createShadowSprite(LayerBadge badge) {
+        BadgeRenderer.getAutoBounds(badge.mBadgeTextLength, 0, 0, badge.mBadgeNumberRect, badge.mBadgePadding, mRect);
+        float extra = mShadowRadius * 2 + Math.max(mShadowOffsetX, mShadowOffsetY) + 1;
+        int halfWidth = (int) Math.ceil(mRect.width() / 2f + extra);
+        int halfHeight = (int) Math.ceil(mRect.height() / 2f + extra);
+        Bitmap sprite = Bitmap.createBitmap(halfWidth * 2, halfHeight * 2, Bitmap.Config.ARGB_8888);
+        Paint backgroundPaint = mRenderer.getBackgroundPaint();
+        backgroundPaint.setShadowLayer(mShadowRadius, mShadowOffsetX, mShadowOffsetY, 0x33000000);
+        drawBadge(new Canvas(sprite), badge, halfWidth, halfHeight);
+        backgroundPaint.clearShadowLayer();
+        return sprite;
+    }
+
+    private void drawBadge(Canvas canvas, LayerBadge badge, float centerX, float centerY) {
+        mRenderer.setColors(badge.mColorBackground, badge.mColorBadgeNumber, 255);
+        mRenderer.setTextSize(badge.mBadgeNumberSize);
+        BadgeRenderer.getAutoBounds(badge.mBadgeTextLength, centerX, centerY, badge.mBadgeNumberRect, badge.mBadgePadding, mRect);
+        mRenderer.drawAutoBadge(canvas, badge.mBadgeText, badge.mBadgeTextLength, mRect,
+                badge.mBadgeNumberRect, mRoundRectRadius);
+    }
+
+    private static int dp2px(Context context, float dp) {
+        final float scale = context.getResources().getDisplayMetrics().density;
+        return (int) (dp * scale + 0.5f);
+    }
+
+    private static int px2dp(Context context, float pxValue) {
+        final float scale = context.getResources().getDisplayMetrics().density;
+        return (int) (pxValue / scale + 0.5f);
+    }
+
+    /**
+     * BadgeLayer中的一条badge记录，不是view
+     */
+    private static class LayerBadge implements Badge {
+
+        static final BadgeNumberFormatter EXACT_FORMATTER = BadgeNumberFormatter.exact();
+
+        final BadgeLayer mLayer;
+
+        int mColorBackground = 0xFFE84E40;
+        int mColorBadgeNumber = 0xFFFFFFFF;
+        float mBadgeNumberSize;
+        float mBadgePadding;
+        int mBadgeNumber;
+        final char[] mBadgeText = new char[BadgeNumberFormatter.MAX_LENGTH];
+        int mBadgeTextLength;
+        boolean mExact;
+        boolean mShowShadow;
+        int mBadgeGravity = Gravity.END | Gravity.TOP;
+        int mGravityOffset;
+
+        WeakReference<View> mTargetRef;
+        boolean mVisible;
+        boolean mTextDirty = true;
+        final BadgeRenderer.TextMetrics mTextMetrics = new BadgeRenderer.TextMetrics();
+        final Rect mBadgeNumberRect = mTextMetrics.bounds;
+        final PointF mBadgeCenter = new PointF();
+        //target的可见区域，badge只画在这个区域内
+        final Rect mClipRect = new Rect();
+        final BadgeSpriteCache.Key mSpriteKey = new BadgeSpriteCache.Key();
+        //没有开启BadgeSpriteCache时自己持有的阴影位图，以及生成它时的key
+        Bitmap mShadowSprite;
+        BadgeSpriteCache.Key mShadowSpriteKey;
+
+        LayerBadge(BadgeLayer layer) {
+            mLayer = layer;
+            Context context = layer.getContext();
+            mBadgeNumberSize = dp2px(context, 10);
+            mBadgePadding = dp2px(context, 4f);
+            mGravityOffset = dp2px(context, 5);
+        }
+
+        View getTargetView() {
+            return mTargetRef == null ? null : mTargetRef.get();
+        }
+
+        private void onChanged(boolean textChanged) {
+            mTextDirty |= textChanged;
+            mLayer.invalidate();
+        }
+
+        @Override
+        public Badge setBadgeNumber(int badgeNumber) {
+            if (badgeNumber == mBadgeNumber) {
+                return this;
+            }
+            mBadgeNumber = badgeNumber;
+            updateBadgeText();
+            onChanged(true);
+            return this;
+        }
+
+        void updateBadgeText() {
+            if (mBadgeNumber <= 0) {
+                mBadgeTextLength = 0;
+            } else {
+                mBadgeTextLength = (mExact ? EXACT_FORMATTER : mLayer.mBadgeNumberFormatter).format(mBadgeNumber, mBadgeText);
+            }
+        }
+
+        @Override
+        public int getBadgeNumber() {
+            return mBadgeNumber;
+        }
+
+        @Override
+        public Badge setExactMode(boolean isExact) {
+            if (isExact != mExact) {
+                mExact = isExact;
+                updateBadgeText();
+                onChanged(true);
+            }
+            return this;
+        }
+
+        @Override
+        public boolean isExactMode() {
+            return mExact;
+        }
+
+        @Override
+        public Badge setShowShadow(boolean showShadow) {
+            if (showShadow != mShowShadow) {
+                mShowShadow = showShadow;
+                if (!showShadow) {
+                    mShadowSprite = null;
+                    mShadowSpriteKey = null;
+                }
+                onChanged(false);
+            }
+            return this;
+        }
+
+        @Override
+        public boolean isShowShadow() {
+            return mShowShadow;
+        }
+
+        @Override
+        public Badge setBadgeBackgroundColor(int color) {
+            if (color != mColorBackground) {
+                mColorBackground = color;
+                onChanged(false);
+            }
+            return this;
+        }
+
+        @Override
+        public int getBadgeBackgroundColor() {
+            return mColorBackground;
+        }
+
+        @Override
+        public Badge setBadgeNumberColor(int color) {
+            if (color != mColorBadgeNumber) {
+                mColorBadgeNumber = color;
+                onChanged(false);
+            }
+            return this;
+        }
+
+        @Override
+        public int getBadgeNumberColor() {
+            return mColorBadgeNumber;
+        }
+
+        @Override
+        public Badge setBadgeNumberSize(float size, boolean isSpValue) {
+            float value = isSpValue ? dp2px(mLayer.getContext(), size) : size;
+            if (value != mBadgeNumberSize) {
+                mBadgeNumberSize = value;
+                onChanged(true);
+            }
+            return this;
+        }
+
+        @Override
+        public float getBadgeNumberSize(boolean isSpValue) {
+            return isSpValue ? px2dp(mLayer.getContext(), mBadgeNumberSize) : mBadgeNumberSize;
+        }
+
+        @Override
+        public Badge setBadgePadding(float padding, boolean isDpValue) {
+            float value = isDpValue ? dp2px(mLayer.getContext(), padding) : padding;
+            if (value != mBadgePadding) {
+                mBadgePadding = value;
+                onChanged(true);
+            }
+            return this;
+        }
+
+        @Override
+        public float getBadgePadding(boolean isDpValue) {
+            return isDpValue ? px2dp(mLayer.getContext(), mBadgePadding) : mBadgePadding;
+        }
+
+        @Override
+        public boolean isDraggable() {
+            return false;
+        }
+
+        @Override
+        public Badge setDraggable(boolean draggable) {
+            if (draggable) {
+                throw new IllegalStateException("badges drawn by BadgeLayer are not draggable, use DraggableBadgeView instead");
+            }
+            return this;
+        }
+
+        @Override
+        public Badge setBadgeGravity(int gravity) {
+            if (gravity == (Gravity.START | Gravity.TOP) ||
+                    gravity == (Gravity.END | Gravity.TOP) ||
+                    gravity == (Gravity.START | Gravity.BOTTOM) ||
+                    gravity == (Gravity.END | Gravity.BOTTOM) ||
+                    gravity == (Gravity.CENTER)) {
+                if (gravity != mBadgeGravity) {
+                    mBadgeGravity = gravity;
+                    onChanged(true);
+                }
+            } else {
+                throw new IllegalStateException("only support Gravity.START | Gravity.TOP , Gravity.END | Gravity.TOP , " +
+                        "Gravity.START | Gravity.BOTTOM , Gravity.END | Gravity.BOTTOM , Gravity.CENTER");
+            }
+            return this;
+        }
+
+        @Override
+        public int getBadgeGravity() {
+            return mBadgeGravity;
+        }
+
+        @Override
+        public Badge setGravityOffset(int offset, boolean isDpValue) {
+            int value = isDpValue ? dp2px(mLayer.getContext(), offset) : offset;
+            if (value != mGravityOffset) {
+                mGravityOffset = value;
+                onChanged(true);
+            }
+            return this;
+        }
+
+        @Override
+        public int getGravityOffset(boolean isDpValue) {
+            return isDpValue ? px2dp(mLayer.getContext(), mGravityOffset) : mGravityOffset;
+        }
+
+        @Override
+        public Badge setOnDragStateChangedListener(OnDragStateChangedListener l) {
+            if (l != null) {
+                throw new IllegalStateException("badges drawn by BadgeLayer are not draggable, use DraggableBadgeView instead");
+            }
+            return this;
+        }
+
+        @Override
+        public PointF getDragCenter() {
+            return null;
+        }
+
+        @Override
+        public Badge bindTarget(View view) {
+            if (view == null) {
+                throw new IllegalStateException("targetView can not be null");
+            }
+            mTargetRef = new WeakReference<>(view);
+            mLayer.add(this);
+            onChanged(true);
+            return this;
+        }
+
+        @Override
+        public void hide(boolean animate) {
+            setBadgeNumber(0);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.javayhu.kiss.views.common;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * badge数字的格式化
+ * <p>
+ * 结果直接写入调用方复用的char[]中，绘制时使用drawText(char[], ...)，数字变化时不会创建String。
+ * 内置三种模式：精确数字、超过上限显示"99+"、缩写为"1.2k"/"12M"，都支持不同语言的数字字符。
+ */
+public abstract class BadgeNumberFormatter {
+
+    /**
+     * 传入的char[]至少需要这么长
+     */
+    public static final int MAX_LENGTH = 16;
+
+    private static final char[] SUFFIXES = {'k', 'M', 'B'};
+
+    protected final char mZeroDigit;
+    protected final char mDecimalSeparator;
+
+    protected BadgeNumberFormatter(Locale locale) {
+        if (locale == null) {
+            mZeroDigit = '0';
+            mDecimalSeparator = '.';
+        } else {
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+            mZeroDigit = symbols.getZeroDigit();
+            mDecimalSeparator = symbols.getDecimalSeparator();
+        }
+    }
+
+    /**
+     * @param number 大于0的数字
+     * @param out    长度至少为MAX_LENGTH
+     * @return 写入的字符个数
+     */
+    public abstract int format(int number, char[] out);
+
+    /**
+     * 显示精确的数字
+     */
+    public static BadgeNumberFormatter exact() {
+        return exact(null);
+    }
+
+    public static BadgeNumberFormatter exact(Locale locale) {
+        return new BadgeNumberFormatter(locale) {
+            @Override
+            public int format(int number, char[] out) {
+                return writeDigits(number, out, 0);
+            }
+        };
+    }
+
+    /**
+     * 超过max的数字显示为"max+"，例如"99+"
+     */
+    public static BadgeNumberFormatter capped(int max) {
+        return capped(max, null);
+    }
+
+    public static BadgeNumberFormatter capped(final int max, Locale locale) {
+        return new BadgeNumberFormatter(locale) {
+            @Override
+            public int format(int number, char[] out) {
+                if (number > max) {
+                    int length = writeDigits(max, out, 0);
+                    out[length] = '+';
+                    return length + 1;
+                }
+                return writeDigits(number, out, 0);
+            }
+        };
+    }
+
+    /**
+     * 大于等于1000的数字缩写，例如1234显示为"1.2k"，56789显示为"56k"，1200000显示为"1.2M"
+     */
+    public static BadgeNumberFormatter compact() {
+        return compact(null);
+    }
+
+    public static BadgeNumberFormatter compact(Locale locale) {
+        return new BadgeNumberFormatter(locale) {
+            @Override
+            public int format(int number, char[] out) {
+                if (number < 1000) {
+                    return writeDigits(number, out, 0);
+                }
+                int unit = 1000;
+                int suffix = 0;
+                while (suffix < SUFFIXES.length - 1 && number / unit >= 1000) {
+                    unit *= 1000;
+                    suffix++;
+                }
+                int integer = number / unit;
+                int length = writeDigits(integer, out, 0);
+                //只有一位整数的时候显示一位小数，小数为0时省略
+                if (integer < 10) {
+                    int decimal = (number % unit) / (unit / 10);
+                    if (decimal > 0) {
+                        out[length++] = mDecimalSeparator;
+                        out[length++] = (char) (mZeroDigit + decimal);
+                    }
+                }
+                out[length++] = SUFFIXES[suffix];
+                return length;
+            }
+        };
+    }
+
+    /**
+     * 把非负整数按当前的数字字符写入out，返回写入之后的位置
+     */
+    protected int writeDigits(int value, char[] out, int offset) {
+        int digits = 1;
+        for (int v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        int end = offset + digits;
+        for (int i = end - 1; i >= offset; i--) {
+            out[i] = (char) (mZeroDigit + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+}
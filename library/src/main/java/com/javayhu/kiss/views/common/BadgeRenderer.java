@@ -0,0 +1,253 @@
+package com.javayhu.kiss.views.common;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.text.TextPaint;
+
+/**
+ * badge的绘制引擎，BadgeView(BadgeDrawable)、DraggableBadgeView和BadgeLayer都通过它绘制
+ * <p>
+ * 1.形状只在这里绘制：BadgeView按SHAPE_*绘制，DraggableBadgeView和BadgeLayer按数字的位数选择圆点、圆形或者圆角矩形(SHAPE_AUTO)
+ * 2.记录Paint当前的颜色和字号，和上一次相同时不再设置，连续绘制很多样式相同的badge时Paint没有状态变化
+ * 3.文字的测量结果保存在每个badge自己的TextMetrics中，文字和字号不变时不再重新测量
+ * 4.一个BadgeRenderer可以依次把任意多个badge画到同一个Canvas上，BadgeLayer就是这样批量绘制的
+ * 5.只在主线程使用
+ */
+public class BadgeRenderer {
+
+    /**
+     * 负数画成圆点，一位数画成圆形，两位数以上画成圆角矩形
+     */
+    public static final int SHAPE_AUTO = 0;
+
+    /**
+     * 一个badge的文字测量结果，文字和字号都没变的时候直接使用上一次的结果
+     */
+    public static class TextMetrics {
+        public final Rect bounds = new Rect();
+        private char[] text = new char[BadgeNumberFormatter.MAX_LENGTH];
+        private int length = -1;
+        private float textSize = -1;
+
+        /**
+         * 字体等其他会影响测量结果的属性变化时调用，下一次重新测量
+         */
+        public void invalidate() {
+            length = -1;
+        }
+
+        private boolean isSame(char[] text, int length, float textSize) {
+            if (this.length != length || this.textSize != textSize) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (this.text[i] != text[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void set(char[] text, int length, float textSize) {
+            if (this.text.length < length) {
+                this.text = new char[length];
+            }
+            System.arraycopy(text, 0, this.text, 0, length);
+            this.length = length;
+            this.textSize = textSize;
+        }
+    }
+
+    private final Paint mBackgroundPaint;
+    private final TextPaint mNumberPaint;
+
+    //Paint当前的状态，valid为false时下一次重新设置
+    private boolean mColorsValid;
+    private boolean mTextSizeValid;
+    private int mBackgroundColor;
+    private int mNumberColor;
+    private float mTextSize;
+
+    public BadgeRenderer() {
+        mNumberPaint = new TextPaint();
+        mNumberPaint.setAntiAlias(true);
+        mNumberPaint.setSubpixelText(true);
+        mNumberPaint.setFakeBoldText(true);
+        mNumberPaint.setTextAlign(Paint.Align.CENTER);
+
+        mBackgroundPaint = new Paint();
+        mBackgroundPaint.setAntiAlias(true);
+        mBackgroundPaint.setStyle(Paint.Style.FILL);
+    }
+
+    public Paint getBackgroundPaint() {
+        return mBackgroundPaint;
+    }
+
+    public TextPaint getNumberPaint() {
+        return mNumberPaint;
+    }
+
+    /**
+     * 外部直接修改了Paint的颜色或者字号之后调用
+     */
+    public void resetPaintState() {
+        mColorsValid = false;
+        mTextSizeValid = false;
+    }
+
+    /**
+     * @param alpha 额外的透明度，和颜色本身的透明度相乘，255表示不变
+     */
+    public void setColors(int backgroundColor, int numberColor, int alpha) {
+        if (alpha != 255) {
+            backgroundColor = multiplyAlpha(backgroundColor, alpha);
+            numberColor = multiplyAlpha(numberColor, alpha);
+        }
+        if (!mColorsValid || backgroundColor != mBackgroundColor) {
+            mBackgroundPaint.setColor(backgroundColor);
+            mBackgroundColor = backgroundColor;
+        }
+        if (!mColorsValid || numberColor != mNumberColor) {
+            mNumberPaint.setColor(numberColor);
+            mNumberColor = numberColor;
+        }
+        mColorsValid = true;
+    }
+
+    public void setTextSize(float textSize) {
+        if (!mTextSizeValid || textSize != mTextSize) {
+            mNumberPaint.setTextSize(textSize);
+            mTextSize = textSize;
+            mTextSizeValid = true;
+        }
+    }
+
+    /**
+     * 测量文字的边界，结果在metrics.bounds中
+     */
+    public void measureText(char[] text, int length, float textSize, TextMetrics metrics) {
+        if (metrics.isSame(text, Math.max(length, 0), textSize)) {
+            return;
+        }
+        if (length <= 0) {
+            metrics.bounds.setEmpty();
+            metrics.set(text, 0, textSize);
+            return;
+        }
+        setTextSize(textSize);
+        mNumberPaint.getTextBounds(text, 0, length, metrics.bounds);
+        metrics.set(text, length, textSize);
+    }
+
+    /**
+     * SHAPE_AUTO时圆点和圆形的半径，圆角矩形时是高度的一半
+     * <p>
+     * SHAPE_AUTO的形状只由格式化之后的文字长度决定：没有文字是圆点，一个字符是圆形，更长的是圆角矩形，
+     * 所以文字相同的badge形状一定相同，可以共用按文字缓存的sprite
+     */
+    public static float getAutoRadius(int textLength, Rect textBounds, float padding) {
+        if (textLength <= 0) {
+            return padding;
+        } else if (textLength == 1) {
+            return Math.max(textBounds.height(), textBounds.width()) / 2f + padding;
+        }
+        return textBounds.height() / 2f + padding / getAutoPaddingFactor(textLength);
+    }
+
+    /**
+     * SHAPE_AUTO时背景形状的外接矩形
+     */
+    public static void getAutoBounds(int textLength, float centerX, float centerY, Rect textBounds, float padding, RectF out) {
+        if (isAutoCircle(textLength)) {
+            float radius = getAutoRadius(textLength, textBounds, padding);
+            out.set(centerX - radius, centerY - radius, centerX + radius, centerY + radius);
+        } else {
+            float halfWidth = textBounds.width() / 2f + padding;
+            float halfHeight = textBounds.height() / 2f + padding / getAutoPaddingFactor(textLength);
+            out.set(centerX - halfWidth, centerY - halfHeight, centerX + halfWidth, centerY + halfHeight);
+        }
+    }
+
+    /**
+     * SHAPE_AUTO时是否是圆点或圆形，否则是圆角矩形
+     */
+    public static boolean isAutoCircle(int textLength) {
+        return textLength <= 1;
+    }
+
+    //两个字符的上下留白小一些
+    private static float getAutoPaddingFactor(int textLength) {
+        return textLength <= 2 ? 1.2f : 1.0f;
+    }
+
+    /**
+     * 按SHAPE_AUTO绘制背景，bounds来自getAutoBounds
+     */
+    public void drawAutoBackground(Canvas canvas, int textLength, RectF bounds, float roundRectRadius) {
+        if (isAutoCircle(textLength)) {
+            canvas.drawCircle(bounds.centerX(), bounds.centerY(), bounds.width() / 2f, mBackgroundPaint);
+        } else {
+            canvas.drawRoundRect(bounds, roundRectRadius, roundRectRadius, mBackgroundPaint);
+        }
+    }
+
+    /**
+     * 按SHAPE_AUTO绘制一个完整的badge，没有文字时只画圆点
+     */
+    public void drawAutoBadge(Canvas canvas, char[] text, int length, RectF bounds, Rect textBounds,
+                              float roundRectRadius) {
+        drawAutoBackground(canvas, length, bounds, roundRectRadius);
+        if (length > 0) {
+            drawText(canvas, text, length, bounds.centerX(), bounds.centerY() + textBounds.height() / 2f);
+        }
+    }
+
+    /**
+     * 文字水平居中绘制
+     */
+    public void drawText(Canvas canvas, char[] text, int length, float centerX, float baseline) {
+        canvas.drawText(text, 0, length, centerX, baseline, mNumberPaint);
+    }
+
+    /**
+     * 按BadgeView.SHAPE_*绘制背景和文字，使用调用方的Paint，不改变Paint的状态
+     *
+     * @param textOffsetY 文字基线相对于形状中心的偏移
+     */
+    public static void drawShapeBadge(Canvas canvas, int shape, RectF bounds, float roundRectRadius, char[] text, int length,
+                                      float textOffsetY, Paint backgroundPaint, Paint numberPaint) {
+        float centerX = bounds.centerX();
+        float centerY = bounds.centerY();
+        switch (shape) {
+            case BadgeView.SHAPE_CIRCLE:
+                canvas.drawCircle(centerX, centerY, (int) bounds.width() / 2, backgroundPaint);
+                break;
+            case BadgeView.SHAPE_OVAL:
+                canvas.drawOval(bounds, backgroundPaint);
+                break;
+            case BadgeView.SHAPE_RECTANGLE:
+                canvas.drawRect(bounds, backgroundPaint);
+                break;
+            case BadgeView.SHAPE_SQUARE:
+                float sideLength = Math.min(bounds.width(), bounds.height());
+                canvas.drawRect(bounds.left, bounds.top, bounds.left + sideLength, bounds.top + sideLength, backgroundPaint);
+                centerX = bounds.left + sideLength / 2f;
+                centerY = bounds.top + sideLength / 2f;
+                break;
+            case BadgeView.SHAPE_ROUND_RECTANGLE:
+                canvas.drawRoundRect(bounds, roundRectRadius, roundRectRadius, backgroundPaint);
+                break;
+            default:
+                return;
+        }
+        canvas.drawText(text, 0, length, centerX, centerY + textOffsetY, numberPaint);
+    }
+
+    private static int multiplyAlpha(int color, int alpha) {
+        return (color & 0x00ffffff) | ((Color.alpha(color) * alpha / 255) << 24);
+    }
+}
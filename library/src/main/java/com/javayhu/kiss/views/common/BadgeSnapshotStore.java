@@ -0,0 +1,342 @@
+package com.javayhu.kiss.views.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * badge计数的持久化快照，用于冷启动时在第一帧之前快速恢复badge
+ * <p>
+ * 1.文件是固定格式的开放寻址哈希表，通过MappedByteBuffer访问，读取时直接查找对应的槽位，不需要解析整个文件
+ * 2.写入先放到内存中，在后台线程批量写入文件
+ * 3.文件头有CRC校验，每个槽位有自己的校验值，文件头损坏时重建文件，槽位损坏时当作不存在
+ * 4.后台写入失败时保留异常，在下一次flush或close时抛出
+ * 5.每个槽位的读写只持有这个槽位对应的分段锁，读取方不会等待整批写入、扩容或者force
+ * <p>
+ * 文件格式：
+ * <pre>
+ * header(32 bytes): magic(int) version(int) capacity(int) size(int) crc(int) reserved(12 bytes)
+ * slot(16 bytes):   id(long) count(int) check(int)，check为0表示空槽位
+ * </pre>
+ * 用法：int count = store.get("inbox", 0); badge.setBadgeNumber(count); 计数变化时 store.put("inbox", count);
+ */
+public class BadgeSnapshotStore {
+
+    private static final int MAGIC = 0x4B424447;//KBDG
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 16;
+    private static final int MIN_CAPACITY = 1024;
+    private static final long WRITE_DELAY_MILLIS = 100;
+    private static final int LOCK_STRIPES = 64;
+
+    private final File mFile;
+    private final ConcurrentHashMap<Long, Integer> mPending = new ConcurrentHashMap<>();
+    private final AtomicBoolean mWriteScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService mExecutor;
+    private final Runnable mWriteTask = new Runnable() {
+        @Override
+        public void run() {
+            mWriteScheduled.set(false);
+            try {
+                writePending();
+            } catch (IOException e) {
+                mWriteError = e;
+            } catch (RuntimeException e) {
+                //在executor中抛出的异常没有人能看到，同样留到flush时抛出
+                mWriteError = new IOException(e);
+            }
+        }
+    };
+
+    //读取和写入一个槽位时持有槽位对应的锁，保证读取方能看到写线程写入的完整内容
+    private final Object[] mSlotLocks = new Object[LOCK_STRIPES];
+    //扩容时在新表写完之后整体替换，读取方拿到的buffer和capacity总是一致的
+    private volatile Table mTable;
+    private boolean mRecovered;
+    private volatile IOException mWriteError;
+
+    public BadgeSnapshotStore(File file) throws IOException {
+        mFile = file;
+        mExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "badge-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            mSlotLocks[i] = new Object();
+        }
+        mTable = open(file);
+    }
+
+    /**
+     * @return 打开文件时是否发现文件已损坏并重建
+     */
+    public boolean isRecovered() {
+        return mRecovered;
+    }
+
+    public int get(String id, int defaultValue) {
+        return get(idOf(id), defaultValue);
+    }
+
+    /**
+     * 可以在任意线程调用，只查找id对应的槽位
+     */
+    public int get(long id, int defaultValue) {
+        Integer pending = mPending.get(id);
+        if (pending != null) {
+            return pending;
+        }
+        Table table = mTable;
+        int mask = table.capacity - 1;
+        int index = slotIndex(id, mask);
+        for (int i = 0; i < table.capacity; i++) {
+            int slot = (index + i) & mask;
+            int offset = HEADER_SIZE + slot * SLOT_SIZE;
+            int check;
+            long slotId;
+            int count;
+            synchronized (slotLock(slot)) {
+                check = table.buffer.getInt(offset + 12);
+                slotId = table.buffer.getLong(offset);
+                count = table.buffer.getInt(offset + 8);
+            }
+            if (check == 0) {
+                return defaultValue;
+            }
+            if (slotId == id) {
+                return check == check(id, count) ? count : defaultValue;
+            }
+        }
+        return defaultValue;
+    }
+
+    public void put(String id, int count) {
+        put(idOf(id), count);
+    }
+
+    /**
+     * 可以在任意线程调用，计数会在后台线程中批量写入文件
+     */
+    public void put(long id, int count) {
+        mPending.put(id, count);
+        if (mWriteScheduled.compareAndSet(false, true)) {
+            mExecutor.schedule(mWriteTask, WRITE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 阻塞直到所有的修改都写入文件
+     *
+     * @throws IOException 这一次或者之前的后台写入失败，失败的修改仍然保留在内存中，下一次写入时重试
+     */
+    public void flush() throws IOException {
+        try {
+            mExecutor.submit(mWriteTask).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        IOException error = mWriteError;
+        if (error != null) {
+            mWriteError = null;
+            throw error;
+        }
+    }
+
+    public void close() throws IOException {
+        flush();
+        mExecutor.shutdown();
+    }
+
+    /**
+     * 字符串id转换成64位的id(FNV-1a)
+     */
+    public static long idOf(String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0, length = id.length(); i < length; i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    //以下方法只在后台写线程中调用
+
+    private void writePending() throws IOException {
+        if (mPending.isEmpty()) {
+            return;
+        }
+        Table table = mTable;
+        for (Map.Entry<Long, Integer> entry : mPending.entrySet()) {
+            long id = entry.getKey();
+            int count = entry.getValue();
+            if ((table.size + 1) * 4 > table.capacity * 3) {
+                table = grow(table);
+            }
+            //文件头中的size比实际占用的槽位少时(例如被其他版本写过)表可能已经满了，扩容时会重新统计size
+            while (!writeSlot(table, id, count)) {
+                table = grow(table);
+            }
+            //写入之后才从内存中移除，读取方总能读到最新的值
+            mPending.remove(id, count);
+        }
+        writeHeader(table);
+        table.buffer.force();
+    }
+
+    /**
+     * @return 表已经满了的话返回false
+     */
+    private boolean writeSlot(Table table, long id, int count) {
+        int mask = table.capacity - 1;
+        int index = slotIndex(id, mask);
+        for (int i = 0; i < table.capacity; i++) {
+            int slot = (index + i) & mask;
+            int offset = HEADER_SIZE + slot * SLOT_SIZE;
+            synchronized (slotLock(slot)) {
+                int check = table.buffer.getInt(offset + 12);
+                if (check == 0 || table.buffer.getLong(offset) == id) {
+                    if (check == 0) {
+                        table.size++;
+                    }
+                    table.buffer.putLong(offset, id);
+                    table.buffer.putInt(offset + 8, count);
+                    table.buffer.putInt(offset + 12, check(id, count));
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Object slotLock(int slot) {
+        return mSlotLocks[slot & (LOCK_STRIPES - 1)];
+    }
+
+    //扩容到两倍，先写到临时文件再替换；新表写完之前读取方一直使用旧表
+    private Table grow(Table old) throws IOException {
+        File temp = new File(mFile.getPath() + ".tmp");
+        Table table = create(temp, old.capacity * 2);
+        for (int i = 0; i < old.capacity; i++) {
+            int offset = HEADER_SIZE + i * SLOT_SIZE;
+            int check = old.buffer.getInt(offset + 12);
+            if (check == 0) {
+                continue;
+            }
+            long id = old.buffer.getLong(offset);
+            int count = old.buffer.getInt(offset + 8);
+            if (check == check(id, count)) {
+                writeSlot(table, id, count);
+            }
+        }
+        writeHeader(table);
+        table.buffer.force();
+        if (!temp.renameTo(mFile)) {
+            throw new IOException("can not replace " + mFile);
+        }
+        mTable = table;
+        return table;
+    }
+
+    private Table open(File file) throws IOException {
+        if (file.exists() && file.length() >= HEADER_SIZE) {
+            Table table = map(file, file.length());
+            int magic = table.buffer.getInt(0);
+            int version = table.buffer.getInt(4);
+            int capacity = table.buffer.getInt(8);
+            int size = table.buffer.getInt(12);
+            int crc = table.buffer.getInt(16);
+            if (magic == MAGIC && version == VERSION
+                    && capacity >= MIN_CAPACITY && Integer.bitCount(capacity) == 1
+                    && file.length() == HEADER_SIZE + (long) capacity * SLOT_SIZE
+                    && size >= 0 && size <= capacity
+                    && crc == headerCrc(magic, version, capacity, size)) {
+                table.capacity = capacity;
+                table.size = size;
+                return table;
+            }
+            mRecovered = true;
+        }
+        Table table = create(file, MIN_CAPACITY);
+        writeHeader(table);
+        table.buffer.force();
+        return table;
+    }
+
+    private static Table create(File file, int capacity) throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("can not delete " + file);
+        }
+        Table table = map(file, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        table.capacity = capacity;
+        table.size = 0;
+        return table;
+    }
+
+    private static Table map(File file, long length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length);
+            Table table = new Table();
+            table.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            return table;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void writeHeader(Table table) {
+        table.buffer.putInt(0, MAGIC);
+        table.buffer.putInt(4, VERSION);
+        table.buffer.putInt(8, table.capacity);
+        table.buffer.putInt(12, table.size);
+        table.buffer.putInt(16, headerCrc(MAGIC, VERSION, table.capacity, table.size));
+    }
+
+    //测试中用来构造文件头
+    static int headerCrc(int magic, int version, int capacity, int size) {
+        CRC32 crc = new CRC32();
+        crc.update(new byte[]{
+                (byte) (magic >>> 24), (byte) (magic >>> 16), (byte) (magic >>> 8), (byte) magic,
+                (byte) (version >>> 24), (byte) (version >>> 16), (byte) (version >>> 8), (byte) version,
+                (byte) (capacity >>> 24), (byte) (capacity >>> 16), (byte) (capacity >>> 8), (byte) capacity,
+                (byte) (size >>> 24), (byte) (size >>> 16), (byte) (size >>> 8), (byte) size});
+        return (int) crc.getValue();
+    }
+
+    private static int slotIndex(long id, int mask) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    //槽位的校验值，永远不为0
+    private static int check(long id, int count) {
+        long h = (id ^ (count * 0xC2B2AE3D27D4EB4FL)) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 31;
+        int check = (int) (h ^ (h >>> 32));
+        return check == 0 ? 1 : check;
+    }
+
+    private static class Table {
+        MappedByteBuffer buffer;
+        int capacity;
+        int size;
+    }
+}
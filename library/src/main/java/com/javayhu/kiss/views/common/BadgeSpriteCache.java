@@ -0,0 +1,188 @@
+package com.javayhu.kiss.views.common;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import java.util.Arrays;
+
+/**
+ * 进程内共享的badge位图缓存
+ * <p>
+ * 同一种样式(背景色、数字颜色、字号、padding、阴影)加同样文字的badge只需要光栅化一次，之后绘制只是一次drawBitmap。
+ * 默认关闭，通过{@link #setEnabled(boolean)}开启，对DraggableBadgeView和BadgeView都生效。
+ * <p>
+ * 只在主线程使用。
+ */
+public class BadgeSpriteCache {
+
+    public static final int KIND_DRAGGABLE = 0;
+    public static final int KIND_LAYER = -1;
+
+    private static final int DEFAULT_MAX_SIZE = 1024 * 1024;//1MB
+
+    private static boolean sEnabled;
+    private static BadgeSpriteCache sInstance;
+
+    private final LruCache<Key, Bitmap> mCache;
+
+    private BadgeSpriteCache(int maxSize) {
+        mCache = new LruCache<Key, Bitmap>(maxSize) {
+            @Override
+            protected int sizeOf(Key key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    public static BadgeSpriteCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new BadgeSpriteCache(DEFAULT_MAX_SIZE);
+        }
+        return sInstance;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+        if (!enabled && sInstance != null) {
+            sInstance.clear();
+        }
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * @param maxSize 缓存的内存上限，单位byte
+     */
+    public void setMaxSize(int maxSize) {
+        mCache.resize(maxSize);
+    }
+
+    public int getMaxSize() {
+        return mCache.maxSize();
+    }
+
+    public Bitmap get(Key key) {
+        return mCache.get(key);
+    }
+
+    /**
+     * key会被复制一份，调用方可以继续复用传入的key
+     */
+    public void put(Key key, Bitmap sprite) {
+        mCache.put(new Key(key), sprite);
+    }
+
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    /**
+     * 缓存的key，查找时复用同一个对象，只有写入缓存时才复制
+     */
+    public static class Key {
+        int kind;
+        char[] text;
+        int textLength;
+        int width;
+        int height;
+        int backgroundColor;
+        int numberColor;
+        float numberSize;
+        float padding;
+        boolean shadow;
+        //阴影的绘制方式和参数，不同的阴影画出来的位图不同
+        int shadowMode;
+        float shadowRadius;
+        float shadowDx;
+        float shadowDy;
+
+        public Key() {
+        }
+
+        Key(Key other) {
+            set(other.kind, Arrays.copyOf(other.text, other.textLength), other.textLength, other.width, other.height,
+                    other.backgroundColor, other.numberColor, other.numberSize, other.padding, other.shadow);
+            setShadow(other.shadowMode, other.shadowRadius, other.shadowDx, other.shadowDy);
+        }
+
+        /**
+         * text不会被复制，查找期间调用方不能修改它；阴影参数会被重置，需要的话之后再调用setShadow
+         */
+        public Key set(int kind, char[] text, int textLength, int width, int height, int backgroundColor, int numberColor,
+                       float numberSize, float padding, boolean shadow) {
+            this.kind = kind;
+            this.text = text;
+            this.textLength = textLength;
+            this.width = width;
+            this.height = height;
+            this.backgroundColor = backgroundColor;
+            this.numberColor = numberColor;
+            this.numberSize = numberSize;
+            this.padding = padding;
+            this.shadow = shadow;
+            return setShadow(0, 0, 0, 0);
+        }
+
+        public Key setShadow(int shadowMode, float shadowRadius, float shadowDx, float shadowDy) {
+            this.shadowMode = shadowMode;
+            this.shadowRadius = shadowRadius;
+            this.shadowDx = shadowDx;
+            this.shadowDy = shadowDy;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return kind == key.kind
+                    && width == key.width
+                    && height == key.height
+                    && backgroundColor == key.backgroundColor
+                    && numberColor == key.numberColor
+                    && Float.compare(key.numberSize, numberSize) == 0
+                    && Float.compare(key.padding, padding) == 0
+                    && shadow == key.shadow
+                    && shadowMode == key.shadowMode
+                    && Float.compare(key.shadowRadius, shadowRadius) == 0
+                    && Float.compare(key.shadowDx, shadowDx) == 0
+                    && Float.compare(key.shadowDy, shadowDy) == 0
+                    && textEquals(key);
+        }
+
+        private boolean textEquals(Key key) {
+            if (textLength != key.textLength) {
+                return false;
+            }
+            for (int i = 0; i < textLength; i++) {
+                if (text[i] != key.text[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = kind;
+            for (int i = 0; i < textLength; i++) {
+                result = 31 * result + text[i];
+            }
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + backgroundColor;
+            result = 31 * result + numberColor;
+            result = 31 * result + Float.floatToIntBits(numberSize);
+            result = 31 * result + Float.floatToIntBits(padding);
+            result = 31 * result + (shadow ? 1 : 0);
+            result = 31 * result + shadowMode;
+            result = 31 * result + Float.floatToIntBits(shadowRadius);
+            result = 31 * result + Float.floatToIntBits(shadowDx);
+            result = 31 * result + Float.floatToIntBits(shadowDy);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.javayhu.kiss.views.common;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.view.Gravity;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * badge的样式：形状、大小、字号、颜色和位置
+ * <p>
+ * 1.创建之后不可修改，可以被任意多个BadgeDrawable/BadgeView共用，每个badge只需要保存自己的数字和位置
+ * 2.样式中的Paint也是共用的，使用方不能修改它们
+ * 3.withXxx方法返回另一个样式，原来的样式不变
+ * 4.属性相同的样式只创建一次：最近使用的样式按属性缓存，很多badge各自调用setTextColor等方法得到的仍然是同一个对象
+ * <p>
+ * 常用的样式可以通过BadgeFactory获取，它们只会创建一次。样式中的Paint不是线程安全的，只在主线程上绘制时共用，
+ * BadgeBitmapRenderer在后台线程中绘制时使用自己复制的Paint
+ */
+public final class BadgeStyle {
+
+    public static final int SIZE_WRAP_CONTENT = -1;
+
+    //缓存的样式个数，超过之后移除最久没有使用的
+    private static final int MAX_INTERNED = 64;
+
+    private static BadgeStyle sDefaultStyle;
+    private static float sDefaultDensity;
+
+    private static final Map<Spec, BadgeStyle> sInterned = new LinkedHashMap<Spec, BadgeStyle>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Spec, BadgeStyle> eldest) {
+            return size() > MAX_INTERNED;
+        }
+    };
+    //查找时复用的key，只在持有BadgeStyle.class锁时使用
+    private static final Spec sLookup = new Spec();
+
+    final int shape;
+    final int width;
+    final int height;
+    final float textSize;
+    final int textColor;
+    final int backgroundColor;
+    final int gravity;
+    final float padding;
+    final float roundRectRadius;
+
+    //根据上面的属性计算出来的绘制数据
+    final Paint numberPaint;
+    final Paint backgroundPaint;
+    final float textHeight;
+    final float textOffsetY;
+
+    private BadgeStyle(int shape, int width, int height, float textSize, int textColor, int backgroundColor,
+                       int gravity, float padding, float roundRectRadius) {
+        this.shape = shape;
+        this.width = width;
+        this.height = height;
+        this.textSize = textSize;
+        this.textColor = textColor;
+        this.backgroundColor = backgroundColor;
+        this.gravity = gravity;
+        this.padding = padding;
+        this.roundRectRadius = roundRectRadius;
+
+        numberPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        numberPaint.setColor(textColor);
+        numberPaint.setStyle(Paint.Style.FILL);
+        numberPaint.setTextSize(textSize);
+        numberPaint.setTextAlign(Paint.Align.CENTER);
+
+        backgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        backgroundPaint.setColor(backgroundColor);
+        backgroundPaint.setStyle(Paint.Style.FILL);
+
+        //文字基线相对于形状中心的偏移
+        Paint.FontMetrics fontMetrics = numberPaint.getFontMetrics();
+        textHeight = fontMetrics.descent - fontMetrics.ascent;
+        textOffsetY = textHeight / 2f - fontMetrics.descent;
+    }
+
+    /**
+     * 默认样式：红底白字的圆形，10sp，大小根据文字计算，位于右上角。同一个屏幕密度下返回同一个对象
+     */
+    public static synchronized BadgeStyle getDefault(Context context) {
+        float density = context.getResources().getDisplayMetrics().density;
+        if (sDefaultStyle == null || sDefaultDensity != density) {
+            float scaledDensity = context.getResources().getDisplayMetrics().scaledDensity;
+            sDefaultStyle = obtain(BadgeView.SHAPE_CIRCLE, SIZE_WRAP_CONTENT, SIZE_WRAP_CONTENT,
+                    (int) (10 * scaledDensity + 0.5f), Color.WHITE, Color.RED, Gravity.END | Gravity.TOP,
+                    (int) (4 * density + 0.5f), (int) (5 * density + 0.5f));
+            sDefaultDensity = density;
+        }
+        return sDefaultStyle;
+    }
+
+    //属性相同时返回已经创建的样式
+    private static synchronized BadgeStyle obtain(int shape, int width, int height, float textSize, int textColor,
+                                                  int backgroundColor, int gravity, float padding, float roundRectRadius) {
+        sLookup.set(shape, width, height, textSize, textColor, backgroundColor, gravity, padding, roundRectRadius);
+        BadgeStyle style = sInterned.get(sLookup);
+        if (style == null) {
+            style = new BadgeStyle(shape, width, height, textSize, textColor, backgroundColor, gravity, padding,
+                    roundRectRadius);
+            Spec spec = new Spec();
+            spec.set(shape, width, height, textSize, textColor, backgroundColor, gravity, padding, roundRectRadius);
+            sInterned.put(spec, style);
+        }
+        return style;
+    }
+
+    public BadgeStyle withShape(int shape) {
+        if (shape == this.shape) {
+            return this;
+        }
+        return obtain(shape, width, height, textSize, textColor, backgroundColor, gravity, padding, roundRectRadius);
+    }
+
+    /**
+     * @param width  单位px，SIZE_WRAP_CONTENT表示根据文字计算
+     * @param height 单位px，SIZE_WRAP_CONTENT表示根据文字计算
+     */
+    public BadgeStyle withSize(int width, int height) {
+        if (width == this.width && height == this.height) {
+            return this;
+        }
+        return obtain(shape, width, height, textSize, textColor, backgroundColor, gravity, padding, roundRectRadius);
+    }
+
+    /**
+     * @param textSize 单位px
+     */
+    public BadgeStyle withTextSize(float textSize) {
+        if (textSize == this.textSize) {
+            return this;
+        }
+        return obtain(shape, width, height, textSize, textColor, backgroundColor, gravity, padding, roundRectRadius);
+    }
+
+    public BadgeStyle withTextColor(int textColor) {
+        if (textColor == this.textColor) {
+            return this;
+        }
+        return obtain(shape, width, height, textSize, textColor, backgroundColor, gravity, padding, roundRectRadius);
+    }
+
+    public BadgeStyle withBackgroundColor(int backgroundColor) {
+        if (backgroundColor == this.backgroundColor) {
+            return this;
+        }
+        return obtain(shape, width, height, textSize, textColor, backgroundColor, gravity, padding, roundRectRadius);
+    }
+
+    public BadgeStyle withGravity(int gravity) {
+        if (gravity == this.gravity) {
+            return this;
+        }
+        return obtain(shape, width, height, textSize, textColor, backgroundColor, gravity, padding, roundRectRadius);
+    }
+
+    /**
+     * @param padding 大小根据文字计算时文字四周的空白，单位px
+     */
+    public BadgeStyle withPadding(float padding) {
+        if (padding == this.padding) {
+            return this;
+        }
+        return obtain(shape, width, height, textSize, textColor, backgroundColor, gravity, padding, roundRectRadius);
+    }
+
+    public int getShape() {
+        return shape;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public float getTextSize() {
+        return textSize;
+    }
+
+    public int getTextColor() {
+        return textColor;
+    }
+
+    public int getBackgroundColor() {
+        return backgroundColor;
+    }
+
+    public int getGravity() {
+        return gravity;
+    }
+
+    public float getPadding() {
+        return padding;
+    }
+
+    //样式的属性，作为缓存的key
+    private static final class Spec {
+        int shape;
+        int width;
+        int height;
+        float textSize;
+        int textColor;
+        int backgroundColor;
+        int gravity;
+        float padding;
+        float roundRectRadius;
+
+        void set(int shape, int width, int height, float textSize, int textColor, int backgroundColor,
+                 int gravity, float padding, float roundRectRadius) {
+            this.shape = shape;
+            this.width = width;
+            this.height = height;
+            this.textSize = textSize;
+            this.textColor = textColor;
+            this.backgroundColor = backgroundColor;
+            this.gravity = gravity;
+            this.padding = padding;
+            this.roundRectRadius = roundRectRadius;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Spec)) {
+                return false;
+            }
+            Spec other = (Spec) o;
+            return shape == other.shape && width == other.width && height == other.height
+                    && Float.compare(textSize, other.textSize) == 0 && textColor == other.textColor
+                    && backgroundColor == other.backgroundColor && gravity == other.gravity
+                    && Float.compare(padding, other.padding) == 0
+                    && Float.compare(roundRectRadius, other.roundRectRadius) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = shape;
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + Float.floatToIntBits(textSize);
+            result = 31 * result + textColor;
+            result = 31 * result + backgroundColor;
+            result = 31 * result + gravity;
+            result = 31 * result + Float.floatToIntBits(padding);
+            result = 31 * result + Float.floatToIntBits(roundRectRadius);
+            return result;
+        }
+    }
+}
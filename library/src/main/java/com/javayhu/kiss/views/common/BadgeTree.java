@@ -0,0 +1,171 @@
+package com.javayhu.kiss.views.common;
+
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * 层级聚合的badge，父节点的数字等于所有子节点数字之和
+ * <p>
+ * 1.叶子节点的数字变化时只沿着祖先节点向上增量更新，复杂度是O(depth)，不需要重新计算所有的和
+ * 2.数字变化的节点先记录下来，在下一帧统一更新绑定的Badge，一帧之内多次变化只更新一次
+ * 3.只能在主线程使用
+ * <p>
+ * 用法：
+ * <pre>
+ * BadgeTree tree = new BadgeTree();
+ * BadgeTree.Node tab = tree.getRoot().addChild().bind(tabBadge);
+ * BadgeTree.Node chat = tab.addChild().bind(chatBadge);
+ * chat.setValue(3);
+ * </pre>
+ */
+public class BadgeTree {
+
+    private final Node mRoot;
+    private final ArrayList<Node> mDirtyNodes = new ArrayList<>();
+    private boolean mFrameScheduled;
+
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mFrameScheduled = false;
+            dispatch();
+        }
+    };
+
+    public BadgeTree() {
+        mRoot = new Node(this, null);
+    }
+
+    public Node getRoot() {
+        return mRoot;
+    }
+
+    /**
+     * 立即把所有变化的数字更新到绑定的Badge上
+     */
+    public void dispatch() {
+        if (mFrameScheduled) {
+            mFrameScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+        }
+        //dispatch过程中setBadgeNumber可能再次修改树，按下标遍历新加入的节点也会被处理
+        for (int i = 0; i < mDirtyNodes.size(); i++) {
+            Node node = mDirtyNodes.get(i);
+            node.mDirty = false;
+            if (node.mBadge != null) {
+                node.mBadge.setBadgeNumber(node.mValue);
+            }
+        }
+        mDirtyNodes.clear();
+    }
+
+    private void markDirty(Node node) {
+        if (node.mDirty) {
+            return;
+        }
+        node.mDirty = true;
+        mDirtyNodes.add(node);
+        if (!mFrameScheduled) {
+            mFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    }
+
+    //从node开始向上把delta加到所有祖先节点上
+    private void propagate(Node node, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        for (Node n = node; n != null; n = n.mParent) {
+            n.mValue += delta;
+            markDirty(n);
+        }
+    }
+
+    public static class Node {
+
+        private final BadgeTree mTree;
+        private Node mParent;
+        private int mChildCount;
+        private int mValue;
+        private boolean mDirty;
+        private boolean mRemoved;
+        private Badge mBadge;
+
+        private Node(BadgeTree tree, Node parent) {
+            mTree = tree;
+            mParent = parent;
+        }
+
+        /**
+         * 有数字的叶子节点不能再添加子节点，否则它的数字不再等于子节点之和，需要先把数字设置为0
+         */
+        public Node addChild() {
+            if (mChildCount == 0 && mValue != 0) {
+                throw new IllegalStateException("can not add child to a leaf node with value " + mValue + ", set its value to 0 first");
+            }
+            mChildCount++;
+            return new Node(mTree, this);
+        }
+
+        /**
+         * 从树中移除这个节点，它的数字会从所有祖先节点中减去，已经移除的节点再次调用不做任何事
+         */
+        public void remove() {
+            if (mRemoved) {
+                return;
+            }
+            if (mParent == null) {
+                throw new IllegalStateException("can not remove the root node");
+            }
+            mTree.propagate(mParent, -mValue);
+            mParent.mChildCount--;
+            mParent = null;
+            mRemoved = true;
+        }
+
+        public boolean isRemoved() {
+            return mRemoved;
+        }
+
+        /**
+         * 只有叶子节点可以直接设置数字，父节点的数字由子节点决定
+         */
+        public Node setValue(int value) {
+            if (mChildCount > 0) {
+                throw new IllegalStateException("only leaf node can set value, parent value is the sum of its children");
+            }
+            mTree.propagate(this, value - mValue);
+            return this;
+        }
+
+        public Node add(int delta) {
+            return setValue(mValue + delta);
+        }
+
+        public int getValue() {
+            return mValue;
+        }
+
+        public Node getParent() {
+            return mParent;
+        }
+
+        public boolean isLeaf() {
+            return mChildCount == 0;
+        }
+
+        public Node bind(Badge badge) {
+            mBadge = badge;
+            if (badge != null) {
+                badge.setBadgeNumber(mValue);
+            }
+            return this;
+        }
+
+        public Badge getBadge() {
+            return mBadge;
+        }
+    }
+}
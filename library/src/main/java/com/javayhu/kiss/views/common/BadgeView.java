@@ -2,10 +2,8 @@ package com.javayhu.kiss.views.common;
 
 import android.annotation.TargetApi;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.RectF;
 import android.os.Build;
 import android.util.AttributeSet;
 import android.util.Log;
@@ -14,6 +12,8 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.FrameLayout;
 
+import com.javayhu.kiss.views.R;
+
 /**
  * BadgeView base on android (
  * 相对简易的badgeview，支持绑定到任意view，但是不支持拖拽消除 (2-1)
@@ -21,6 +21,7 @@ import android.widget.FrameLayout;
  * 1.如果要支持拖拽消除，使用DraggableBadgeView，它是另一个版本的badgeview (1-1)
  * 2.如果数字是几位数，例如14，DraggableBadgeView默认是圆矩形，BadgeView显示出来的制定的形状，例如圆形
  * 3.在某些情况下BadgeView会显示在其他view的下面，例如给button设置BadgeView的时候BadgeView是在下面！这个是bug
+ * 4.bind会用FrameLayout包装目标view，不想改变布局层级的话使用BadgeDrawable (2-2)
  * <p>
  * https://github.com/AlexLiuSheng/BadgeView
  * <p>
@@ -29,13 +30,9 @@ import android.widget.FrameLayout;
  */
 public class BadgeView extends View {
     /**
-     * 数字paint
-     */
-    private Paint numberPaint;
-    /**
-     * 背景Paint
+     * 形状和文字都由BadgeDrawable绘制
      */
-    private Paint backgroundPaint;
+    private BadgeDrawable badgeDrawable;
 
     public static final int SHAPE_CIRCLE = 1;
     public static final int SHAPE_RECTANGLE = 2;
@@ -43,16 +40,18 @@ public class BadgeView extends View {
     public static final int SHAPE_ROUND_RECTANGLE = 4;
     public static final int SHAPE_SQUARE = 5;
 
-    private int currentShape = SHAPE_CIRCLE;
-    private int defaultTextColor = Color.WHITE;
     private int defaultTextSize;
-    private int defaultBackgroundColor = Color.RED;
 
-    private String showText = "";
+    //默认样式的字号是1dp，同一个屏幕密度下所有BadgeView共用一个
+    private static BadgeStyle sDefaultStyle;
+    private static float sDefaultDensity;
+
     private boolean hasBind = false;
     private int verticalSpace = 0;
     private int horizontalSpace = 0;
     private int badgeGravity = Gravity.END | Gravity.TOP;
+    private BadgeSpriteCache.Key spriteKey = new BadgeSpriteCache.Key();
+    private Canvas spriteCanvas;
 
     public BadgeView(Context context) {
         super(context);
@@ -78,58 +77,68 @@ public class BadgeView extends View {
     private void init(Context context) {
         defaultTextSize = dip2px(context, 1);
 
-        numberPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        numberPaint.setColor(defaultTextColor);
-        numberPaint.setStyle(Paint.Style.FILL);
-        numberPaint.setTextSize(defaultTextSize);
-        numberPaint.setTextAlign(Paint.Align.CENTER);
-
-        backgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        backgroundPaint.setColor(defaultBackgroundColor);
-        backgroundPaint.setStyle(Paint.Style.FILL);
+        badgeDrawable = new BadgeDrawable(getDefaultStyle(context));
 
         FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(FrameLayout.LayoutParams.WRAP_CONTENT, FrameLayout.LayoutParams.WRAP_CONTENT);
         params.gravity = badgeGravity;
         setLayoutParams(params);
     }
 
+    private static BadgeStyle getDefaultStyle(Context context) {
+        float density = context.getResources().getDisplayMetrics().density;
+        if (sDefaultStyle == null || sDefaultDensity != density) {
+            sDefaultStyle = BadgeStyle.getDefault(context).withTextSize((int) (density + 0.5f));
+            sDefaultDensity = density;
+        }
+        return sDefaultStyle;
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
     }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        badgeDrawable.setBounds(0, 0, w, h);
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        RectF rectF = new RectF(0, 0, getMeasuredWidth(), getMeasuredHeight());
-        Paint.FontMetrics fontMetrics = numberPaint.getFontMetrics();
-        float textH = fontMetrics.descent - fontMetrics.ascent;
-        switch (currentShape) {
-            case SHAPE_CIRCLE:
-                canvas.drawCircle(getMeasuredWidth() / 2f, getMeasuredHeight() / 2f, getMeasuredWidth() / 2, backgroundPaint);
-                canvas.drawText(showText, getMeasuredWidth() / 2f, getMeasuredHeight() / 2f + (textH / 2f - fontMetrics.descent), numberPaint);
-                break;
-            case SHAPE_OVAL:
-                canvas.drawOval(rectF, backgroundPaint);
-                canvas.drawText(showText, getMeasuredWidth() / 2f, getMeasuredHeight() / 2f + (textH / 2f - fontMetrics.descent), numberPaint);
-                break;
-            case SHAPE_RECTANGLE:
-                canvas.drawRect(rectF, backgroundPaint);
-                canvas.drawText(showText, getMeasuredWidth() / 2f, getMeasuredHeight() / 2f + (textH / 2f - fontMetrics.descent), numberPaint);
-                break;
-            case SHAPE_SQUARE:
-                int sideLength = Math.min(getMeasuredHeight(), getMeasuredWidth());
-                RectF squareF = new RectF(0, 0, sideLength, sideLength);
-                canvas.drawRect(squareF, backgroundPaint);
-                canvas.drawText(showText, sideLength / 2f, sideLength / 2f + (textH / 2f - fontMetrics.descent), numberPaint);
-                break;
-            case SHAPE_ROUND_RECTANGLE:
-                canvas.drawRoundRect(rectF, dip2px(getContext(), 5), dip2px(getContext(), 5), backgroundPaint);
-                canvas.drawText(showText, getMeasuredWidth() / 2f, getMeasuredHeight() / 2f + (textH / 2f - fontMetrics.descent), numberPaint);
-                break;
+        if (BadgeSpriteCache.isEnabled()) {
+            drawSprite(canvas);
+        } else {
+            badgeDrawable.draw(canvas);
         }
     }
 
+    //相同形状、尺寸、颜色和文字的badge共用BadgeSpriteCache中的同一张位图
+    private void drawSprite(Canvas canvas) {
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        BadgeDrawable drawable = badgeDrawable;
+        spriteKey.set(drawable.getShape(), drawable.getShowText(), drawable.getShowTextLength(), width, height,
+                drawable.getBadgeBackground(), drawable.getTextColor(), drawable.getTextSize(), 0, false);
+        BadgeSpriteCache cache = BadgeSpriteCache.getInstance();
+        Bitmap sprite = cache.get(spriteKey);
+        if (sprite == null) {
+            sprite = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            if (spriteCanvas == null) {
+                spriteCanvas = new Canvas();
+            }
+            spriteCanvas.setBitmap(sprite);
+            drawable.draw(spriteCanvas);
+            spriteCanvas.setBitmap(null);
+            cache.put(spriteKey, sprite);
+        }
+        canvas.drawBitmap(sprite, 0, 0, null);
+    }
+
     private int dip2px(Context context, int dip) {
         return (int) (dip * context.getResources().getDisplayMetrics().density + 0.5f);
     }
@@ -139,8 +148,28 @@ public class BadgeView extends View {
         return (int) (spValue * fontScale + 0.5f);
     }
 
+    /**
+     * 使用共用的样式，样式中的大小和gravity会设置到LayoutParams中，常用的样式见BadgeFactory
+     */
+    public BadgeView setBadgeStyle(BadgeStyle style) {
+        badgeDrawable.setStyle(style);
+        defaultTextSize = (int) style.getTextSize();
+        badgeGravity = style.getGravity();
+        FrameLayout.LayoutParams params = (FrameLayout.LayoutParams) getLayoutParams();
+        params.width = style.getWidth() >= 0 ? style.getWidth() : FrameLayout.LayoutParams.WRAP_CONTENT;
+        params.height = style.getHeight() >= 0 ? style.getHeight() : FrameLayout.LayoutParams.WRAP_CONTENT;
+        params.gravity = badgeGravity;
+        setLayoutParams(params);
+        invalidate();
+        return this;
+    }
+
+    public BadgeStyle getBadgeStyle() {
+        return badgeDrawable.getStyle();
+    }
+
     public BadgeView setShape(int shape) {
-        currentShape = shape;
+        badgeDrawable.setShape(shape);
         invalidate();
         return this;
     }
@@ -201,39 +230,48 @@ public class BadgeView extends View {
      */
     public BadgeView setTextSize(int sp) {
         defaultTextSize = sp2px(getContext(), sp);
-        numberPaint.setTextSize(sp2px(getContext(), sp));
+        badgeDrawable.setTextSize(defaultTextSize);
         invalidate();
         return this;
     }
 
     public BadgeView setTextColor(int color) {
-        defaultTextColor = color;
-        numberPaint.setColor(color);
+        badgeDrawable.setTextColor(color);
         invalidate();
         return this;
     }
 
     public BadgeView setBadgeBackground(int color) {
-        defaultBackgroundColor = color;
-        backgroundPaint.setColor(color);
+        badgeDrawable.setBadgeBackground(color);
         invalidate();
         return this;
     }
 
     public BadgeView setBadgeCount(int count) {
-        showText = String.valueOf(count);
+        badgeDrawable.setBadgeCount(count);
         invalidate();
         return this;
     }
 
     public BadgeView setBadgeCount(String count) {
-        showText = count;
+        badgeDrawable.setBadgeCount(count);
         invalidate();
         return this;
     }
 
     public String getBadgeCount() {
-        return showText;
+        return badgeDrawable.getBadgeCount();
+    }
+
+    /**
+     * 设置setBadgeCount(int)时数字的显示格式，默认是BadgeNumberFormatter.exact()
+     */
+    public BadgeView setBadgeNumberFormatter(BadgeNumberFormatter formatter) {
+        if (formatter == null) {
+            throw new IllegalStateException("formatter can not be null");
+        }
+        badgeDrawable.setBadgeNumberFormatter(formatter);
+        return this;
     }
 
     /**
@@ -249,13 +287,32 @@ public class BadgeView extends View {
         return this;
     }
 
+    /**
+     * @return 绑定在view上的BadgeView，没有的话返回null
+     */
+    public static BadgeView findBadge(View view) {
+        Object badge = view.getTag(R.id.badge_tag);
+        return badge instanceof BadgeView ? (BadgeView) badge : null;
+    }
+
+    /**
+     * 在RecyclerView/ListView中复用的item上再次调用bind不会重复包装view，
+     * 已经包装过的view直接复用之前的FrameLayout容器
+     */
     public BadgeView bind(View view) {
+        if (view != null && getParent() != null && getParent() == view.getParent() && findBadge(view) == this)
+            return this;
         if (getParent() != null)
             ((ViewGroup) getParent()).removeView(this);
         if (view == null)
             return this;
-        if ((view.getParent() instanceof FrameLayout) && hasBind == true) {
+        BadgeView boundBadge = findBadge(view);
+        if ((view.getParent() instanceof FrameLayout) && (hasBind == true || boundBadge != null)) {
+            if (boundBadge != null && boundBadge != this)
+                boundBadge.unbind();
             ((FrameLayout) view.getParent()).addView(this);
+            view.setTag(R.id.badge_tag, this);
+            hasBind = true;
             return this;
         } else if (view.getParent() instanceof ViewGroup) {
             ViewGroup parentContainer = (ViewGroup) view.getParent();
@@ -312,6 +369,7 @@ public class BadgeView extends View {
             container.addView(view);
             container.addView(this);
             parentContainer.addView(container, viewIndex);
+            view.setTag(R.id.badge_tag, this);
             hasBind = true;
         } else if (view.getParent() == null) {
             Log.e("badgeview", "View must have a parent");
@@ -319,6 +377,15 @@ public class BadgeView extends View {
         return this;
     }
 
+    /**
+     * BadgeView内部用来绘制的BadgeDrawable
+     * <p>
+     * 如果不想包装目标view，可以直接使用BadgeDrawable.obtain(view)，badge会绘制在目标view的ViewOverlay中
+     */
+    public BadgeDrawable getBadgeDrawable() {
+        return badgeDrawable;
+    }
+
     public boolean unbind() {
         if (getParent() != null) {
             ((ViewGroup) getParent()).removeView(this);
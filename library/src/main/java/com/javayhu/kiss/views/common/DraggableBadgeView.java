@@ -2,15 +2,20 @@ package com.javayhu.kiss.views.common;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.BlurMaskFilter;
 import android.graphics.Canvas;
+import android.graphics.ColorFilter;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.PixelFormat;
 import android.graphics.PointF;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.text.TextPaint;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.Gravity;
 import android.view.MotionEvent;
 import android.view.View;
@@ -18,8 +23,7 @@ import android.view.ViewGroup;
 import android.view.ViewParent;
 import android.widget.FrameLayout;
 
-import java.util.ArrayList;
-import java.util.List;
+import com.javayhu.kiss.views.R;
 
 /**
  * 一个可以自由定制外观、支持拖拽消除的BadgeView (1-1)
@@ -33,16 +37,45 @@ import java.util.List;
  */
 public class DraggableBadgeView extends View implements Badge {
 
+    /**
+     * 阴影通过预先渲染好的bitmap绘制，view可以保持硬件加速
+     */
+    public static final int SHADOW_MODE_BITMAP = 0;
+    /**
+     * 阴影通过Paint.setShadowLayer绘制，需要软件layer（原来的实现）
+     */
+    public static final int SHADOW_MODE_SOFTWARE = 1;
+
+    private static final int SHADOW_COLOR = 0x33000000;
+
+    /**
+     * 提醒效果：无、放大缩小、上下跳动、透明度渐变
+     */
+    public static final int EFFECT_NONE = 0;
+    public static final int EFFECT_PULSE = 1;
+    public static final int EFFECT_BOUNCE = 2;
+    public static final int EFFECT_BREATHE = 3;
+
+    public static final long DEFAULT_ROLL_DURATION = 300;
+
+    private static final long EFFECT_PERIOD_NANOS = 1200000000L;
+    private static final float PULSE_SCALE = 0.15f;
+    private static final float BREATHE_ALPHA = 0.6f;
+
     protected int mColorBackground;
     protected int mColorBadgeNumber;
     protected float mBadgeNumberSize;
     protected float mBadgePadding;
     protected int mBadgeNumber;
-    protected String mBadgeText;
+    protected char[] mBadgeText;
+    protected int mBadgeTextLength;
+    protected BadgeNumberFormatter mBadgeNumberFormatter;
+    protected BadgeNumberFormatter mExactFormatter;
     protected boolean mDraggable;
     protected boolean mDragging;
     protected boolean mExact;
     protected boolean mShowShadow;
+    protected int mShadowMode;
     protected int mBadgeGravity;
     protected int mGravityOffset;
 
@@ -56,7 +89,10 @@ public class DraggableBadgeView extends View implements Badge {
 
     protected Path mDragPath;
     protected Rect mBadgeNumberRect;
-    protected RectF mBadgeBackgroundRect;
+
+    protected RectF mTempBounds;
+    protected BadgeSpriteCache.Key mSpriteKey;
+    protected Canvas mSnapshotCanvas;
 
     protected PointF mBadgeCenter;
     protected PointF mDragCenter;
@@ -65,11 +101,73 @@ public class DraggableBadgeView extends View implements Badge {
 
     protected View mTargetView;
     protected ViewGroup mActivityRoot;
+    //拖拽和消失动画在mActivityRoot的ViewOverlay中绘制，不需要把view移动到mActivityRoot中
+    protected boolean mDragInOverlay;
+    protected boolean mOverlayShown;
+    protected int[] mRootLocation;
+    protected Drawable mOverlayDrawable;
+    //背景和文字都通过BadgeRenderer绘制，两个Paint来自mRenderer
+    protected BadgeRenderer mRenderer;
+    protected BadgeRenderer.TextMetrics mTextMetrics;
     protected Paint mBadgeBackgroundPaint;
     protected TextPaint mBadgeNumberPaint;
-    protected List<PointF> mInnerTangentPoints;
+    //橡皮筋两端的四个切点，按x0, y0, x1, y1...存放
+    protected float[] mInnerTangentPoints;
+    //父容器中所有badge共用的点击索引，按下事件只会交给索引找到的badge
+    protected BadgeHitIndex.Entry mHitEntry;
+    protected int[] mScreenPoint;
+
+    //onDraw和onTouchEvent中用到的尺寸，提前换算好避免每一帧都去读DisplayMetrics
+    protected float mTouchRadius;
+    protected float mOutOfRangeRadius;
+    protected float mRoundRectRadius;
+    protected float mShadowRadius;
+    protected float mShadowOffsetX;
+    protected float mShadowOffsetY;
+    protected float mShadowDx;
+    protected float mShadowDy;
+
+    //SHADOW_MODE_BITMAP下缓存的阴影，只有背景形状的尺寸变化时才重新生成
+    protected Bitmap mShadowBitmap;
+    protected Paint mShadowPaint;
+    protected float mShadowBitmapWidth;
+    protected float mShadowBitmapHeight;
+    protected boolean mShadowBitmapCircle;
+    //正在OverlayDrawable中绘制
+    protected boolean mDrawingInOverlay;
+
+    //拖拽时的触摸点在每一帧(vsync)只处理一次，并根据速度做简单的位置预测
+    protected boolean mDragFrameSync;
+    protected float mDragPredictionMillis;
+    protected float mTouchX;
+    protected float mTouchY;
+    protected long mTouchTime;
+    protected float mVelocityX;
+    protected float mVelocityY;
+    protected boolean mDragFramePosted;
+    protected Choreographer.FrameCallback mDragFrameCallback;
+
+    //数字滚动和提醒效果都由共享的BadgeAnimationClock驱动，每个badge只注册一个callback
+    protected BadgeAnimationClock.Callback mClockCallback;
+    protected boolean mClockRegistered;
+    protected int mAttentionEffect;
+    protected float mEffectFraction;
+    protected int mEffectAlpha;
+    protected float mBounceHeight;
+    protected Paint mEffectPaint;
+
+    protected boolean mRollEnabled;
+    protected long mRollDuration;
+    protected boolean mRolling;
+    protected boolean mRollUp;
+    protected long mRollStartNanos;
+    protected float mRollFraction;
+    protected char[] mRollFromText;
+    protected int mRollFromLength;
 
     protected BadgeAnimator mAnimator;
+    protected int mDismissParticlesPerSide;
+    protected long mDismissDuration;
     protected OnDragStateChangedListener mDragStateChangedListener;
 
     public DraggableBadgeView(Context context) {
@@ -86,24 +184,26 @@ public class DraggableBadgeView extends View implements Badge {
     }
 
     private void init() {
-        setLayerType(View.LAYER_TYPE_SOFTWARE, mBadgeBackgroundPaint);
-        mBadgeNumberRect = new Rect();
-        mBadgeBackgroundRect = new RectF();
+        mTextMetrics = new BadgeRenderer.TextMetrics();
+        mBadgeNumberRect = mTextMetrics.bounds;
+        mTempBounds = new RectF();
+        mSpriteKey = new BadgeSpriteCache.Key();
+        mSnapshotCanvas = new Canvas();
+        mRootLocation = new int[2];
+        mOverlayDrawable = new OverlayDrawable();
+        mDragInOverlay = true;
         mDragPath = new Path();
         mBadgeCenter = new PointF();
         mDragCenter = new PointF();
         mRowBadgeCenter = new PointF();
         mControlPoint = new PointF();
-        mInnerTangentPoints = new ArrayList<>();
+        mInnerTangentPoints = new float[8];
+        mHitEntry = new BadgeHitIndex.Entry();
+        mScreenPoint = new int[2];
 
-        mBadgeNumberPaint = new TextPaint();
-        mBadgeNumberPaint.setAntiAlias(true);
-        mBadgeNumberPaint.setSubpixelText(true);
-        mBadgeNumberPaint.setFakeBoldText(true);
-
-        mBadgeBackgroundPaint = new Paint();
-        mBadgeBackgroundPaint.setAntiAlias(true);
-        mBadgeBackgroundPaint.setStyle(Paint.Style.FILL);
+        mRenderer = new BadgeRenderer();
+        mBadgeNumberPaint = mRenderer.getNumberPaint();
+        mBadgeBackgroundPaint = mRenderer.getBackgroundPaint();
 
         mColorBackground = 0xFFE84E40;
         mColorBadgeNumber = 0xFFFFFFFF;
@@ -111,31 +211,99 @@ public class DraggableBadgeView extends View implements Badge {
         mBadgeNumberSize = dp2px(getContext(), 10);
         mBadgePadding = dp2px(getContext(), 4f);
         mBadgeNumber = 0;
+        mBadgeText = new char[BadgeNumberFormatter.MAX_LENGTH];
+        mBadgeTextLength = -1;
+        mBadgeNumberFormatter = BadgeNumberFormatter.capped(99);
+        mExactFormatter = BadgeNumberFormatter.exact();
+        mRollFromText = new char[BadgeNumberFormatter.MAX_LENGTH];
+        mRollDuration = DEFAULT_ROLL_DURATION;
+        mEffectAlpha = 255;
+        mEffectPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        mClockCallback = new BadgeAnimationClock.Callback() {
+            @Override
+            public boolean onAnimationFrame(long frameTimeNanos) {
+                return onClockFrame(frameTimeNanos);
+            }
+        };
         mBadgeGravity = Gravity.END | Gravity.TOP;
         mGravityOffset = dp2px(getContext(), 5);
         mFinalDragDistance = dp2px(getContext(), 100);
         mShowShadow = true;
 
+        mTouchRadius = dp2px(getContext(), 10);
+        mDefaultRadius = dp2px(getContext(), 7);
+        mOutOfRangeRadius = dp2px(getContext(), 1.5f);
+        mRoundRectRadius = dp2px(getContext(), 10);
+        mShadowRadius = dp2px(getContext(), 2f);
+        mShadowOffsetX = dp2px(getContext(), 1);
+        mShadowOffsetY = dp2px(getContext(), 1.5f);
+        mBounceHeight = dp2px(getContext(), 4);
+        setShadowMode(SHADOW_MODE_BITMAP);
+
+        mDismissParticlesPerSide = BadgeAnimator.DEFAULT_PARTICLES_PER_SIDE;
+        mDismissDuration = BadgeAnimator.DEFAULT_DURATION;
+
+        mDragFrameSync = true;
+        mDragFrameCallback = new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                mDragFramePosted = false;
+                if (mDragging) {
+                    applyDragPosition(true);
+                }
+            }
+        };
+
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
             setTranslationZ(1000);
         }
     }
 
+    /**
+     * 适用于RecyclerView/ListView中会被复用的item：如果target已经绑定过badge，直接返回之前的badge，
+     * 不会再次移除和包装target，调用方只需要更新badge的状态
+     */
+    public static Badge obtain(View targetView) {
+        DraggableBadgeView badge = findBadge(targetView);
+        if (badge == null) {
+            badge = new DraggableBadgeView(targetView.getContext());
+        }
+        return badge.bindTarget(targetView);
+    }
+
+    /**
+     * @return 绑定在targetView上的DraggableBadgeView，没有的话返回null
+     */
+    public static DraggableBadgeView findBadge(View targetView) {
+        Object badge = targetView.getTag(R.id.badge_tag);
+        return badge instanceof DraggableBadgeView ? (DraggableBadgeView) badge : null;
+    }
+
     @Override
     public Badge bindTarget(View targetView) {
         if (targetView == null) {
             throw new IllegalStateException("targetView can not be null");
         }
+        //已经绑定在这个target上了，不需要重新添加
+        if (mTargetView == targetView && getParent() != null && getParent() == targetView.getParent()) {
+            return this;
+        }
         if (getParent() != null) {
             ((ViewGroup) getParent()).removeView(this);
         }
+        //一个target只保留一个badge
+        DraggableBadgeView boundBadge = findBadge(targetView);
+        if (boundBadge != null && boundBadge != this && boundBadge.getParent() != null) {
+            ((ViewGroup) boundBadge.getParent()).removeView(boundBadge);
+        }
         ViewParent targetParent = targetView.getParent();
         if (targetParent != null && targetParent instanceof ViewGroup) {
             mTargetView = targetView;
-            //badgeview的大小是和targetParent的大小一样大
+            targetView.setTag(R.id.badge_tag, this);
+            //badgeview的大小是和targetParent的大小一样大，容器可能还没有layout，所以用MATCH_PARENT而不是容器当前的宽高
             if (targetParent instanceof FrameLayout) {
-                ((FrameLayout) targetParent).addView(this, new FrameLayout.LayoutParams(((FrameLayout) targetParent).getWidth(),
-                        ((FrameLayout) targetParent).getHeight()));
+                ((FrameLayout) targetParent).addView(this, new FrameLayout.LayoutParams(
+                        FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT));
             } else {
                 ViewGroup targetContainer = (ViewGroup) targetParent;
                 int index = targetContainer.indexOfChild(targetView);
@@ -148,8 +316,12 @@ public class DraggableBadgeView extends View implements Badge {
                 badgeContainer.post(new Runnable() {
                     @Override
                     public void run() {
-                        badgeContainer.addView(DraggableBadgeView.this, new FrameLayout.LayoutParams(badgeContainer.getWidth(),
-                                badgeContainer.getHeight()));
+                        //在post执行之前可能已经重新绑定过了
+                        if (getParent() != null || mTargetView != badgeContainer.getChildAt(0)) {
+                            return;
+                        }
+                        badgeContainer.addView(DraggableBadgeView.this, new FrameLayout.LayoutParams(
+                                FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT));
                     }
                 });
             }
@@ -162,16 +334,39 @@ public class DraggableBadgeView extends View implements Badge {
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        if (mActivityRoot == null) findActivityRoot(mTargetView);
+        //activity的根view，每个window只需要找一次
+        if (mActivityRoot == null || mActivityRoot.getWindowToken() != getWindowToken()) {
+            View root = getRootView();
+            if (root instanceof ViewGroup) {
+                mActivityRoot = (ViewGroup) root;
+            }
+        }
+        updateClock(true);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        removeFromHitIndex();
+        mRolling = false;
+        updateClock(false);
+        //detach的时候可能正在从父容器中移除，消失动画直接取消，不能再通过reset重新绑定
+        if (mAnimator != null) {
+            mAnimator.cancelDetached();
+            mAnimator = null;
+        }
+        mDragging = false;
+        cancelDragFrame();
+        showOverlay(false);
+        super.onDetachedFromWindow();
     }
 
-    //找到activity的根view
-    private void findActivityRoot(View view) {
-        if (view.getParent() != null && view.getParent() instanceof View) {
-            findActivityRoot((View) view.getParent());
-        } else if (view instanceof ViewGroup) {
-            mActivityRoot = (ViewGroup) view;
+    //不在拖拽中并且按下的位置不在这个badge上时直接放行，不再经过onTouchEvent，事件会继续分发给下面的view
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        if (!mDragging && event.getActionMasked() == MotionEvent.ACTION_DOWN && !isTouchOnBadge(event)) {
+            return false;
         }
+        return super.dispatchTouchEvent(event);
     }
 
     @Override
@@ -180,25 +375,37 @@ public class DraggableBadgeView extends View implements Badge {
             case MotionEvent.ACTION_DOWN:
             case MotionEvent.ACTION_POINTER_DOWN:
                 //当点击的位置距离badgeview很近的时候就触发badgeview的drag事件监听
-                if (mDraggable && mBadgeNumber != 0
-                        && event.getPointerId(event.getActionIndex()) == 0
-                        && getPointDistance(mBadgeCenter, new PointF(event.getX(), event.getY()))
-                        <= dp2px(getContext(), 10)) {
+                if (event.getPointerId(event.getActionIndex()) == 0 && isTouchOnBadge(event)) {
                     initRowBadgeCenter();
                     mDragging = true;
                     updateListener(OnDragStateChangedListener.STATE_START);
-                    mDefaultRadius = dp2px(getContext(), 7);
                     getParent().requestDisallowInterceptTouchEvent(true);
                     screenFromWindow(true);
                     mDragCenter.x = event.getRawX();
                     mDragCenter.y = event.getRawY();
+                    mTouchX = mDragCenter.x;
+                    mTouchY = mDragCenter.y;
+                    mTouchTime = event.getEventTime();
+                    mVelocityX = 0;
+                    mVelocityY = 0;
                 }
                 break;
             case MotionEvent.ACTION_MOVE:
                 if (mDragging) {
-                    mDragCenter.x = event.getRawX();
-                    mDragCenter.y = event.getRawY();
-                    invalidate();
+                    //批量的历史采样点和当前点使用相同的raw偏移
+                    float offsetX = event.getRawX() - event.getX();
+                    float offsetY = event.getRawY() - event.getY();
+                    for (int i = 0, n = event.getHistorySize(); i < n; i++) {
+                        addDragSample(event.getHistoricalX(i) + offsetX, event.getHistoricalY(i) + offsetY,
+                                event.getHistoricalEventTime(i));
+                    }
+                    addDragSample(event.getRawX(), event.getRawY(), event.getEventTime());
+                    if (!mDragFrameSync) {
+                        applyDragPosition(false);
+                    } else if (!mDragFramePosted) {
+                        mDragFramePosted = true;
+                        Choreographer.getInstance().postFrameCallback(mDragFrameCallback);
+                    }
                 }
                 break;
             case MotionEvent.ACTION_UP:
@@ -206,6 +413,11 @@ public class DraggableBadgeView extends View implements Badge {
             case MotionEvent.ACTION_CANCEL:
                 if (event.getPointerId(event.getActionIndex()) == 0 && mDragging) {
                     mDragging = false;
+                    cancelDragFrame();
+                    //松手的时候使用真实的位置，不使用预测的位置
+                    mDragCenter.x = mTouchX;
+                    mDragCenter.y = mTouchY;
+                    mDragOutOfRange = isDragOutOfRange(mTouchX, mTouchY);
                     onPointerUp();
                 }
                 break;
@@ -213,6 +425,76 @@ public class DraggableBadgeView extends View implements Badge {
         return mDragging || super.onTouchEvent(event);
     }
 
+    //记录一个触摸采样点，速度(px/ms)做一次简单的低通滤波
+    protected void addDragSample(float x, float y, long time) {
+        long dt = time - mTouchTime;
+        if (dt > 0) {
+            mVelocityX = 0.5f * mVelocityX + 0.5f * (x - mTouchX) / dt;
+            mVelocityY = 0.5f * mVelocityY + 0.5f * (y - mTouchY) / dt;
+        }
+        mTouchX = x;
+        mTouchY = y;
+        mTouchTime = time;
+    }
+
+    protected void applyDragPosition(boolean predict) {
+        float x = mTouchX;
+        float y = mTouchY;
+        if (predict && mDragPredictionMillis > 0) {
+            x += mVelocityX * mDragPredictionMillis;
+            y += mVelocityY * mDragPredictionMillis;
+        }
+        if (x == mDragCenter.x && y == mDragCenter.y) {
+            return;
+        }
+        mDragCenter.x = x;
+        mDragCenter.y = y;
+        invalidateBadge();
+    }
+
+    private void cancelDragFrame() {
+        if (mDragFramePosted) {
+            mDragFramePosted = false;
+            Choreographer.getInstance().removeFrameCallback(mDragFrameCallback);
+        }
+    }
+
+    /**
+     * @param frameSync true(默认)表示拖拽时每一帧最多刷新一次，false表示每个MOVE事件都刷新
+     */
+    public Badge setDragFrameSync(boolean frameSync) {
+        mDragFrameSync = frameSync;
+        if (!frameSync) {
+            cancelDragFrame();
+        }
+        return this;
+    }
+
+    public boolean isDragFrameSync() {
+        return mDragFrameSync;
+    }
+
+    /**
+     * 根据拖拽速度预测下一帧手指的位置，降低跟手的延迟，只在frameSync开启时有效
+     *
+     * @param millis 预测的时间，单位毫秒，0(默认)表示不预测
+     */
+    public Badge setDragPrediction(float millis) {
+        mDragPredictionMillis = Math.max(0, millis);
+        return this;
+    }
+
+    public float getDragPrediction() {
+        return mDragPredictionMillis;
+    }
+
+    //拖拽的距离让原位置的圆缩小到mOutOfRangeRadius以下时就算超出范围，松手后badge消失
+    private boolean isDragOutOfRange(float x, float y) {
+        float startCircleRadius = mDefaultRadius * (1 - getPointDistance(mRowBadgeCenter.x, mRowBadgeCenter.y, x, y)
+                / mFinalDragDistance);
+        return startCircleRadius < mOutOfRangeRadius;
+    }
+
     private void onPointerUp() {
         if (mDragOutOfRange) {
             animateHide(mDragCenter);
@@ -224,17 +506,24 @@ public class DraggableBadgeView extends View implements Badge {
     }
 
     protected Bitmap createBadgeBitmap() {
-        Rect rect = new Rect();
-        mBadgeNumberPaint.getTextBounds(mBadgeText.toCharArray(), 0, mBadgeText.length(), rect);
-        Bitmap bitmap = Bitmap.createBitmap((int) (rect.width() + mBadgePadding * 2),
-                (int) (rect.width() + mBadgePadding * 2), Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(bitmap);
+        measureBadgeText();
+        Rect rect = mBadgeNumberRect;
+        int size = Math.max((int) (rect.width() + mBadgePadding * 2), 1);
+        Bitmap bitmap = BadgeBitmapPool.acquire(size, size);
+        Canvas canvas = mSnapshotCanvas;
+        canvas.setBitmap(bitmap);
+        mRenderer.setColors(mColorBackground, mColorBadgeNumber, 255);
         canvas.drawCircle(canvas.getWidth() / 2f, canvas.getHeight() / 2f, canvas.getWidth() / 2f, mBadgeBackgroundPaint);
-        canvas.drawText(mBadgeText, canvas.getWidth() / 2f, canvas.getHeight() / 2f + rect.height() / 2f, mBadgeNumberPaint);
+        mRenderer.drawText(canvas, mBadgeText, mBadgeTextLength, canvas.getWidth() / 2f, canvas.getHeight() / 2f + rect.height() / 2f);
+        canvas.setBitmap(null);
         return bitmap;
     }
 
     protected void screenFromWindow(boolean screen) {
+        if (mDragInOverlay) {
+            showOverlay(screen);
+            return;
+        }
         if (getParent() != null) {
             ((ViewGroup) getParent()).removeView(this);
         }
@@ -246,29 +535,161 @@ public class DraggableBadgeView extends View implements Badge {
         }
     }
 
+    private void showOverlay(boolean show) {
+        if (show == mOverlayShown || mActivityRoot == null) {
+            return;
+        }
+        mOverlayShown = show;
+        if (show) {
+            mActivityRoot.getLocationOnScreen(mRootLocation);
+            mOverlayDrawable.setBounds(0, 0, mActivityRoot.getWidth(), mActivityRoot.getHeight());
+            mActivityRoot.getOverlay().add(mOverlayDrawable);
+        } else {
+            mActivityRoot.getOverlay().remove(mOverlayDrawable);
+        }
+        invalidate();
+    }
+
+    /**
+     * @param dragInOverlay true(默认)表示拖拽时在activity根view的ViewOverlay中绘制，不会移动view，也不会触发requestLayout；
+     *                      false表示使用原来的方式，拖拽时把view移动到activity的根view中
+     */
+    public Badge setDragInOverlay(boolean dragInOverlay) {
+        if (mDragging || (mAnimator != null && mAnimator.isRunning())) {
+            throw new IllegalStateException("can not change drag mode while dragging");
+        }
+        mDragInOverlay = dragInOverlay;
+        return this;
+    }
+
+    public boolean isDragInOverlay() {
+        return mDragInOverlay;
+    }
+
+    //在activity根view的ViewOverlay中绘制拖拽状态，坐标从屏幕坐标转换到根view的坐标
+    //overlay是根view的硬件canvas，不受这个view的软件layer影响，阴影总是使用bitmap
+    private class OverlayDrawable extends Drawable {
+
+        @Override
+        public void draw(Canvas canvas) {
+            int count = canvas.save();
+            canvas.translate(-mRootLocation[0], -mRootLocation[1]);
+            mDrawingInOverlay = true;
+            drawContent(canvas);
+            mDrawingInOverlay = false;
+            canvas.restoreToCount(count);
+        }
+
+        @Override
+        public void setAlpha(int alpha) {
+        }
+
+        @Override
+        public void setColorFilter(ColorFilter colorFilter) {
+        }
+
+        @Override
+        public int getOpacity() {
+            return PixelFormat.TRANSLUCENT;
+        }
+    }
+
     private void showShadowImp(boolean showShadow) {
-        int x = dp2px(getContext(), 1);
-        int y = dp2px(getContext(), 1.5f);
+        mShadowDx = mShadowOffsetX;
+        mShadowDy = mShadowOffsetY;
         switch (mDragQuadrant) {
             case 1:
-                x = dp2px(getContext(), 1);
-                y = dp2px(getContext(), -1.5f);
+                mShadowDy = -mShadowOffsetY;
                 break;
             case 2:
-                x = dp2px(getContext(), -1);
-                y = dp2px(getContext(), -1.5f);
+                mShadowDx = -mShadowOffsetX;
+                mShadowDy = -mShadowOffsetY;
                 break;
             case 3:
-                x = dp2px(getContext(), -1);
-                y = dp2px(getContext(), 1.5f);
-                break;
-            case 4:
-                x = dp2px(getContext(), 1);
-                y = dp2px(getContext(), 1.5f);
+                mShadowDx = -mShadowOffsetX;
                 break;
         }
-        mBadgeBackgroundPaint.setShadowLayer(showShadow ? dp2px(getContext(), 2f)
-                : 0, x, y, 0x33000000);
+        if (mShadowMode == SHADOW_MODE_SOFTWARE) {
+            if (isBitmapShadow()) {
+                mBadgeBackgroundPaint.clearShadowLayer();
+            } else {
+                mBadgeBackgroundPaint.setShadowLayer(showShadow ? mShadowRadius : 0, mShadowDx, mShadowDy, SHADOW_COLOR);
+            }
+        }
+    }
+
+    //API 28之前硬件canvas会忽略形状上的setShadowLayer，在overlay中绘制时即使是SHADOW_MODE_SOFTWARE也使用bitmap阴影
+    private boolean isBitmapShadow() {
+        return mShadowMode == SHADOW_MODE_BITMAP || mDrawingInOverlay;
+    }
+
+    //SHADOW_MODE_BITMAP或者在overlay中时，在背景形状下面绘制缓存的阴影bitmap
+    private void drawShadowBitmap(Canvas canvas, float centerX, float centerY, float width, float height, boolean circle) {
+        if (!mShowShadow || !isBitmapShadow() || mShadowRadius <= 0) {
+            return;
+        }
+        if (mShadowBitmap == null || mShadowBitmapWidth != width || mShadowBitmapHeight != height
+                || mShadowBitmapCircle != circle) {
+            mShadowBitmap = createShadowBitmap(width, height, circle);
+            mShadowBitmapWidth = width;
+            mShadowBitmapHeight = height;
+            mShadowBitmapCircle = circle;
+        }
+        if (mShadowBitmap != null) {
+            canvas.drawBitmap(mShadowBitmap, centerX + mShadowDx - mShadowBitmap.getWidth() / 2f,
+                    centerY + mShadowDy - mShadowBitmap.getHeight() / 2f, mEffectAlpha != 255 ? mEffectPaint : null);
+        }
+    }
+
+    //在软件canvas上用BlurMaskFilter画出模糊的形状，效果和setShadowLayer一致
+    private Bitmap createShadowBitmap(float width, float height, boolean circle) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        int blur = (int) Math.ceil(mShadowRadius * 2);
+        int bitmapWidth = (int) Math.ceil(width) + blur * 2;
+        int bitmapHeight = (int) Math.ceil(height) + blur * 2;
+        if (mShadowPaint == null) {
+            mShadowPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            mShadowPaint.setStyle(Paint.Style.FILL);
+            mShadowPaint.setColor(SHADOW_COLOR);
+            mShadowPaint.setMaskFilter(new BlurMaskFilter(mShadowRadius, BlurMaskFilter.Blur.NORMAL));
+        }
+        Bitmap bitmap = Bitmap.createBitmap(bitmapWidth, bitmapHeight, Bitmap.Config.ALPHA_8);
+        Canvas canvas = new Canvas(bitmap);
+        if (circle) {
+            canvas.drawCircle(bitmapWidth / 2f, bitmapHeight / 2f, width / 2f, mShadowPaint);
+        } else {
+            float left = (bitmapWidth - width) / 2f;
+            float top = (bitmapHeight - height) / 2f;
+            canvas.drawRoundRect(new RectF(left, top, left + width, top + height),
+                    mRoundRectRadius, mRoundRectRadius, mShadowPaint);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 设置阴影的绘制方式
+     *
+     * @param shadowMode SHADOW_MODE_BITMAP(默认，保持硬件加速) 或者 SHADOW_MODE_SOFTWARE(使用软件layer)
+     */
+    public Badge setShadowMode(int shadowMode) {
+        if (shadowMode != SHADOW_MODE_BITMAP && shadowMode != SHADOW_MODE_SOFTWARE) {
+            throw new IllegalStateException("only support SHADOW_MODE_BITMAP , SHADOW_MODE_SOFTWARE");
+        }
+        mShadowMode = shadowMode;
+        if (shadowMode == SHADOW_MODE_SOFTWARE) {
+            setLayerType(View.LAYER_TYPE_SOFTWARE, null);
+        } else {
+            mBadgeBackgroundPaint.clearShadowLayer();
+            setLayerType(View.LAYER_TYPE_NONE, null);
+        }
+        invalidate();
+        return this;
+    }
+
+    public int getShadowMode() {
+        return mShadowMode;
     }
 
     @Override
@@ -280,100 +701,333 @@ public class DraggableBadgeView extends View implements Badge {
 
     @Override
     protected void onDraw(Canvas canvas) {
+        if (mOverlayShown) {
+            return;
+        }
+        drawContent(canvas);
+    }
+
+    private void drawContent(Canvas canvas) {
         if (mAnimator != null && mAnimator.isRunning()) {
             mAnimator.draw(canvas);
             return;
         }
+        mEffectAlpha = 255;
         if (mBadgeNumber != 0) {
             showShadowImp(mShowShadow);
             float badgeRadius = getBadgeCircleRadius();
-            float startCircleRadius = mDefaultRadius * (1 - getPointDistance(mRowBadgeCenter, mDragCenter) / mFinalDragDistance);
+            float startCircleRadius = mDefaultRadius * (1 - getPointDistance(mRowBadgeCenter.x, mRowBadgeCenter.y,
+                    mDragCenter.x, mDragCenter.y) / mFinalDragDistance);
             if (mDraggable && mDragging) {
                 mDragQuadrant = getQuadrant(mDragCenter, mRowBadgeCenter);
                 showShadowImp(mShowShadow);
-                if (mDragOutOfRange = startCircleRadius < dp2px(getContext(), 1.5f)) {
-                    updateListener(OnDragStateChangedListener.STATE_DRAGGING_OUT_OF_RANGE);
-                    drawBadge(canvas, mDragCenter, badgeRadius);
+                //是否超出范围只看真实的触摸位置，预测的位置只影响绘制
+                mDragOutOfRange = isDragOutOfRange(mTouchX, mTouchY);
+                updateListener(mDragOutOfRange ? OnDragStateChangedListener.STATE_DRAGGING_OUT_OF_RANGE
+                        : OnDragStateChangedListener.STATE_DRAGGING);
+                if (mDragOutOfRange || startCircleRadius < mOutOfRangeRadius) {
+                    drawBadge(canvas, mDragCenter);
                 } else {
-                    updateListener(OnDragStateChangedListener.STATE_DRAGGING);
                     drawDragging(canvas, startCircleRadius, badgeRadius);
-                    drawBadge(canvas, mDragCenter, badgeRadius);
+                    drawBadge(canvas, mDragCenter);
                 }
             } else {
                 findBadgeCenter();
-                drawBadge(canvas, mBadgeCenter, getBadgeCircleRadius());
+                int count = canvas.save();
+                applyAttentionEffect(canvas, mBadgeCenter);
+                if (BadgeSpriteCache.isEnabled() && !mRolling) {
+                    drawBadgeSprite(canvas, mBadgeCenter);
+                } else {
+                    drawBadge(canvas, mBadgeCenter);
+                }
+                canvas.restoreToCount(count);
             }
         }
     }
 
+    //根据时钟的进度变换画布，breathe效果通过mEffectAlpha降低绘制的透明度
+    private void applyAttentionEffect(Canvas canvas, PointF center) {
+        //一个周期内从0到1再回到0
+        float wave = 0.5f - 0.5f * (float) Math.cos(2 * Math.PI * mEffectFraction);
+        switch (mAttentionEffect) {
+            case EFFECT_PULSE:
+                float scale = 1 + PULSE_SCALE * wave;
+                canvas.scale(scale, scale, center.x, center.y);
+                break;
+            case EFFECT_BOUNCE:
+                //前半个周期跳起再落下，后半个周期静止
+                if (mEffectFraction < 0.5f) {
+                    canvas.translate(0, -mBounceHeight * (float) Math.sin(2 * Math.PI * mEffectFraction));
+                }
+                break;
+            case EFFECT_BREATHE:
+                mEffectAlpha = (int) (255 * (1 - BREATHE_ALPHA * wave));
+                break;
+        }
+        mEffectPaint.setAlpha(mEffectAlpha);
+    }
+
+    /**
+     * 硬件加速下invalidate(Rect)的区域会被忽略，整个view都会重绘，所以不再计算脏区域，
+     * 减少重绘只依靠setter在值不变时直接返回
+     */
+    protected void invalidateBadge() {
+        if (mOverlayShown) {
+            mOverlayDrawable.invalidateSelf();
+            return;
+        }
+        invalidate();
+    }
+
+    private void outsetShadow(RectF bounds) {
+        if (bounds.isEmpty()) {
+            return;
+        }
+        float inset = -(mShadowRadius * 2 + Math.max(mShadowOffsetX, mShadowOffsetY) + 1);
+        bounds.inset(inset, inset);
+    }
+
+    //badge背景形状的外接矩形
+    private void getBadgeBackgroundBounds(PointF center, RectF out) {
+        BadgeRenderer.getAutoBounds(mBadgeTextLength, center.x, center.y, mBadgeNumberRect, mBadgePadding, out);
+    }
+
     private void drawDragging(Canvas canvas, float startRadius, float badgeRadius) {
         float dy = mDragCenter.y - mRowBadgeCenter.y;
         float dx = mDragCenter.x - mRowBadgeCenter.x;
-        mInnerTangentPoints.clear();
-        if (dx != 0) {
-            double k1 = dy / dx;
-            double k2 = -1 / k1;
-            getInnerTangentPoints(mDragCenter, badgeRadius, k2);
-            getInnerTangentPoints(mRowBadgeCenter, startRadius, k2);
-        } else {
-            getInnerTangentPoints(mDragCenter, badgeRadius, 0d);
-            getInnerTangentPoints(mRowBadgeCenter, startRadius, 0d);
-        }
+        float[] points = mInnerTangentPoints;
+        BadgeGeometry.perpendicularPoints(mDragCenter.x, mDragCenter.y, badgeRadius, dx, dy, points, 0);
+        BadgeGeometry.perpendicularPoints(mRowBadgeCenter.x, mRowBadgeCenter.y, startRadius, dx, dy, points, 4);
         mDragPath.reset();
         mDragPath.addCircle(mRowBadgeCenter.x, mRowBadgeCenter.y, startRadius,
                 mDragQuadrant == 1 || mDragQuadrant == 2 ? Path.Direction.CCW : Path.Direction.CW);
         mControlPoint.x = (mRowBadgeCenter.x + mDragCenter.x) / 2.0f;
         mControlPoint.y = (mRowBadgeCenter.y + mDragCenter.y) / 2.0f;
-        mDragPath.moveTo(mInnerTangentPoints.get(2).x, mInnerTangentPoints.get(2).y);
-        mDragPath.quadTo(mControlPoint.x, mControlPoint.y, mInnerTangentPoints.get(0).x, mInnerTangentPoints.get(0).y);
-        mDragPath.lineTo(mInnerTangentPoints.get(1).x, mInnerTangentPoints.get(1).y);
-        mDragPath.quadTo(mControlPoint.x, mControlPoint.y, mInnerTangentPoints.get(3).x, mInnerTangentPoints.get(3).y);
-        mDragPath.lineTo(mInnerTangentPoints.get(2).x, mInnerTangentPoints.get(2).y);
+        mDragPath.moveTo(points[4], points[5]);
+        mDragPath.quadTo(mControlPoint.x, mControlPoint.y, points[0], points[1]);
+        mDragPath.lineTo(points[2], points[3]);
+        mDragPath.quadTo(mControlPoint.x, mControlPoint.y, points[6], points[7]);
+        mDragPath.lineTo(points[4], points[5]);
         mDragPath.close();
-        mBadgeBackgroundPaint.setColor(mColorBackground);
+        mRenderer.setColors(mColorBackground, mColorBadgeNumber, 255);
         canvas.drawPath(mDragPath, mBadgeBackgroundPaint);
     }
 
-    private void drawBadge(Canvas canvas, PointF center, float radius) {
+    private void drawBadge(Canvas canvas, PointF center) {
         if (center.x == -1000 && center.y == -1000) {
             return;
         }
-        mBadgeBackgroundPaint.setColor(mColorBackground);
-        mBadgeNumberPaint.setColor(mColorBadgeNumber);
-        mBadgeNumberPaint.setTextAlign(Paint.Align.CENTER);
-        if (mBadgeNumber < 0) {
-            canvas.drawCircle(center.x, center.y, mBadgePadding, mBadgeBackgroundPaint);
-        } else if (mBadgeNumber <= 9) {//draw circle badge
-            canvas.drawCircle(center.x, center.y, radius, mBadgeBackgroundPaint);
-            canvas.drawText(mBadgeText, center.x, center.y + mBadgeNumberRect.height() / 2f, mBadgeNumberPaint);
-        } else {//>9 draw rect badge
-            float padding = mBadgeNumber <= 99 ? 1.2f : 1.0f;
-            mBadgeBackgroundRect.left = center.x - (mBadgeNumberRect.width() / 2f + mBadgePadding);
-            mBadgeBackgroundRect.top = center.y - (mBadgeNumberRect.height() / 2f + mBadgePadding / padding);
-            mBadgeBackgroundRect.right = center.x + (mBadgeNumberRect.width() / 2f + mBadgePadding);
-            mBadgeBackgroundRect.bottom = center.y + (mBadgeNumberRect.height() / 2f + mBadgePadding / padding);
-            canvas.drawRoundRect(mBadgeBackgroundRect,
-                    dp2px(getContext(), 10), dp2px(getContext(), 10),
-                    mBadgeBackgroundPaint);
-            canvas.drawText(mBadgeText, center.x, center.y + mBadgeNumberRect.height() / 2f, mBadgeNumberPaint);
+        mRenderer.setColors(mColorBackground, mColorBadgeNumber, mEffectAlpha);
+        RectF bounds = mTempBounds;
+        getBadgeBackgroundBounds(center, bounds);
+        //形状由文字长度决定，和按文字缓存的sprite保持一致
+        drawShadowBitmap(canvas, center.x, center.y, bounds.width(), bounds.height(),
+                BadgeRenderer.isAutoCircle(mBadgeTextLength));
+        mRenderer.drawAutoBackground(canvas, mBadgeTextLength, bounds, mRoundRectRadius);
+        if (mBadgeNumber >= 0) {
+            drawBadgeNumber(canvas, center, bounds);
         }
     }
 
-    private float getBadgeCircleRadius() {
-        float radius = mBadgeBackgroundRect.height() / 2f;
-        if (mBadgeNumber < 0) {
-            radius = mBadgePadding;
-        } else if (mBadgeNumber <= 9) {
-            radius = mBadgeNumberRect.height() > mBadgeNumberRect.width() ?
-                    mBadgeNumberRect.height() / 2f + mBadgePadding : mBadgeNumberRect.width() / 2f + mBadgePadding;
+    private void drawBadgeNumber(Canvas canvas, PointF center, RectF backgroundBounds) {
+        float baseline = center.y + mBadgeNumberRect.height() / 2f;
+        if (!mRolling) {
+            mRenderer.drawText(canvas, mBadgeText, mBadgeTextLength, center.x, baseline);
+            return;
+        }
+        int count = canvas.save();
+        canvas.clipRect(backgroundBounds);
+        drawRollingNumber(canvas, center.x, baseline);
+        canvas.restoreToCount(count);
+    }
+
+    //新旧文字按最后一位对齐逐位比较，不同的位上旧字符滚出、新字符滚入，字形和宽度都来自BadgeGlyphCache
+    private void drawRollingNumber(Canvas canvas, float centerX, float baseline) {
+        BadgeGlyphCache glyphs = BadgeGlyphCache.obtain(mBadgeNumberPaint);
+        float fraction = 1 - (1 - mRollFraction) * (1 - mRollFraction);
+        //数字变大时向上滚动，变小时向下滚动
+        float distance = (glyphs.getDescent() - glyphs.getAscent()) * (mRollUp ? -1 : 1);
+        float oldY = baseline + distance * fraction;
+        float newY = baseline - distance * (1 - fraction);
+        float oldRight = centerX + glyphs.measure(mRollFromText, 0, mRollFromLength) / 2f;
+        float newRight = centerX + glyphs.measure(mBadgeText, 0, mBadgeTextLength) / 2f;
+        for (int i = 1; i <= mRollFromLength || i <= mBadgeTextLength; i++) {
+            char oldChar = i <= mRollFromLength ? mRollFromText[mRollFromLength - i] : 0;
+            char newChar = i <= mBadgeTextLength ? mBadgeText[mBadgeTextLength - i] : 0;
+            if (oldChar != 0) {
+                oldRight -= glyphs.getAdvance(oldChar);
+            }
+            if (newChar != 0) {
+                newRight -= glyphs.getAdvance(newChar);
+            }
+            if (oldChar == newChar && Math.abs(oldRight - newRight) < 0.5f) {
+                glyphs.draw(canvas, newChar, newRight, baseline, mBadgeNumberPaint);
+                continue;
+            }
+            if (oldChar != 0) {
+                glyphs.draw(canvas, oldChar, oldRight, oldY, mBadgeNumberPaint);
+            }
+            if (newChar != 0) {
+                glyphs.draw(canvas, newChar, newRight, newY, mBadgeNumberPaint);
+            }
+        }
+    }
+
+    private void startRoll() {
+        mRolling = true;
+        mRollStartNanos = -1;
+        mRollFraction = 0;
+        updateClock(getWindowToken() != null);
+    }
+
+    private void stopRoll() {
+        mRolling = false;
+        updateClock(getWindowToken() != null);
+    }
+
+    //有动画、已经attach并且可见的时候注册到时钟上，否则从时钟上移除，没有可见的动画时时钟可以停下来
+    private void updateClock(boolean attached) {
+        boolean active = attached && isBadgeVisible() && (mRolling || mAttentionEffect != EFFECT_NONE);
+        if (active == mClockRegistered) {
+            return;
+        }
+        mClockRegistered = active;
+        if (active) {
+            BadgeAnimationClock.getInstance().add(mClockCallback);
+        } else {
+            BadgeAnimationClock.getInstance().remove(mClockCallback);
+        }
+    }
+
+    private boolean isBadgeVisible() {
+        return mBadgeNumber != 0 && isShown() && getWindowVisibility() == VISIBLE;
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateClock(getWindowToken() != null);
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateClock(getWindowToken() != null);
+    }
+
+    //每一帧由BadgeAnimationClock回调，返回false表示没有动画了，或者badge已经不可见，重新可见时再注册
+    private boolean onClockFrame(long frameTimeNanos) {
+        boolean shown = isBadgeVisible();
+        if (mRolling) {
+            //从第一帧开始计时
+            if (mRollStartNanos < 0) {
+                mRollStartNanos = frameTimeNanos;
+            }
+            float fraction = mRollDuration <= 0 ? 1 : (frameTimeNanos - mRollStartNanos) / 1000000f / mRollDuration;
+            if (fraction >= 1 || !shown) {
+                mRolling = false;
+            } else {
+                mRollFraction = fraction;
+            }
+        }
+        //所有badge按同一个时间计算进度，同一种效果的节奏是一致的
+        mEffectFraction = (frameTimeNanos % EFFECT_PERIOD_NANOS) / (float) EFFECT_PERIOD_NANOS;
+        if (shown) {
+            invalidateBadge();
+        }
+        mClockRegistered = shown && (mRolling || mAttentionEffect != EFFECT_NONE);
+        return mClockRegistered;
+    }
+
+    /**
+     * 设置提醒效果，所有badge的效果由同一个时钟驱动
+     *
+     * @param effect EFFECT_NONE(默认)、EFFECT_PULSE、EFFECT_BOUNCE 或者 EFFECT_BREATHE
+     */
+    public Badge setAttentionEffect(int effect) {
+        if (effect != EFFECT_NONE && effect != EFFECT_PULSE && effect != EFFECT_BOUNCE && effect != EFFECT_BREATHE) {
+            throw new IllegalStateException("only support EFFECT_NONE , EFFECT_PULSE , EFFECT_BOUNCE , EFFECT_BREATHE");
+        }
+        if (effect == mAttentionEffect) {
+            return this;
+        }
+        mAttentionEffect = effect;
+        mEffectFraction = 0;
+        updateClock(getWindowToken() != null);
+        invalidateBadge();
+        return this;
+    }
+
+    public int getAttentionEffect() {
+        return mAttentionEffect;
+    }
+
+    /**
+     * 设置数字变化时是否以滚动的方式从旧数字过渡到新数字
+     *
+     * @param enabled  默认false
+     * @param duration 动画时长，单位毫秒，默认300
+     */
+    public Badge setRollAnimation(boolean enabled, long duration) {
+        mRollEnabled = enabled;
+        mRollDuration = duration;
+        if (!enabled && mRolling) {
+            stopRoll();
+            invalidateBadge();
+        }
+        return this;
+    }
+
+    public boolean isRollAnimation() {
+        return mRollEnabled;
+    }
+
+    //静止状态下的badge从共享的BadgeSpriteCache中取位图绘制
+    private void drawBadgeSprite(Canvas canvas, PointF center) {
+        mSpriteKey.set(BadgeSpriteCache.KIND_DRAGGABLE, mBadgeText, mBadgeTextLength, 0, 0, mColorBackground, mColorBadgeNumber,
+                mBadgeNumberSize, mBadgePadding, mShowShadow);
+        if (mShowShadow) {
+            mSpriteKey.setShadow(isBitmapShadow() ? SHADOW_MODE_BITMAP : SHADOW_MODE_SOFTWARE,
+                    mShadowRadius, mShadowDx, mShadowDy);
         }
-        return radius;
+        BadgeSpriteCache cache = BadgeSpriteCache.getInstance();
+        Bitmap sprite = cache.get(mSpriteKey);
+        if (sprite == null) {
+            sprite = createBadgeSprite(center);
+            cache.put(mSpriteKey, sprite);
+        }
+        canvas.drawBitmap(sprite, center.x - sprite.getWidth() / 2f, center.y - sprite.getHeight() / 2f,
+                mAttentionEffect != EFFECT_NONE ? mEffectPaint : null);
+    }
+
+    //位图的中心就是badge的中心，四周留出阴影的空间
+    private Bitmap createBadgeSprite(PointF center) {
+        getBadgeBackgroundBounds(center, mTempBounds);
+        outsetShadow(mTempBounds);
+        int halfWidth = (int) Math.ceil(mTempBounds.width() / 2f);
+        int halfHeight = (int) Math.ceil(mTempBounds.height() / 2f);
+        Bitmap sprite = Bitmap.createBitmap(Math.max(halfWidth * 2, 1), Math.max(halfHeight * 2, 1), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(sprite);
+        canvas.translate(halfWidth - center.x, halfHeight - center.y);
+        //缓存的位图是共享的，不能带上当前的透明度
+        int effectAlpha = mEffectAlpha;
+        mEffectAlpha = 255;
+        drawBadge(canvas, center);
+        mEffectAlpha = effectAlpha;
+        return sprite;
+    }
+
+    private float getBadgeCircleRadius() {
+        return BadgeRenderer.getAutoRadius(mBadgeTextLength, mBadgeNumberRect, mBadgePadding);
+    }
+
+    //文字和字号不变的时候直接使用上一次的测量结果
+    private void measureBadgeText() {
+        mRenderer.measureText(mBadgeText, mBadgeTextLength, mBadgeNumberSize, mTextMetrics);
     }
 
     private void findBadgeCenter() {
-        mBadgeNumberPaint.setTextSize(mBadgeNumberSize);
-        char[] chars = mBadgeText.toCharArray();
-        mBadgeNumberPaint.getTextBounds(chars, 0, chars.length, mBadgeNumberRect);
+        measureBadgeText();
         int rectWidth = mBadgeNumberRect.height() > mBadgeNumberRect.width() ?
                 mBadgeNumberRect.height() : mBadgeNumberRect.width();
         switch (mBadgeGravity) {
@@ -399,13 +1053,42 @@ public class DraggableBadgeView extends View implements Badge {
                 break;
         }
         initRowBadgeCenter();
+        updateHitIndex();
+    }
+
+    //badge已经加入父容器的索引时由索引决定，多个badge重叠时只有距离最近的那个响应
+    private boolean isTouchOnBadge(MotionEvent event) {
+        if (!mDraggable || mBadgeNumber == 0) {
+            return false;
+        }
+        BadgeHitIndex index = mHitEntry.index;
+        if (index != null) {
+            return index.findTarget(getLeft() + event.getX(), getTop() + event.getY(), event.getEventTime()) == mHitEntry;
+        }
+        return getPointDistance(mBadgeCenter.x, mBadgeCenter.y, event.getX(), event.getY()) <= mTouchRadius;
+    }
+
+    //badge的位置确定之后更新父容器中的索引，不能拖拽或者不显示的badge从索引中移除
+    private void updateHitIndex() {
+        ViewParent parent = getParent();
+        if (!mDraggable || mBadgeNumber == 0 || mOverlayShown || !(parent instanceof ViewGroup)) {
+            removeFromHitIndex();
+            return;
+        }
+        BadgeHitIndex.obtain((ViewGroup) parent).update(mHitEntry, getLeft() + mBadgeCenter.x,
+                getTop() + mBadgeCenter.y, mTouchRadius);
+    }
+
+    private void removeFromHitIndex() {
+        if (mHitEntry.index != null) {
+            mHitEntry.index.remove(mHitEntry);
+        }
     }
 
     private void initRowBadgeCenter() {
-        int[] screenPoint = new int[2];
-        getLocationOnScreen(screenPoint);
-        mRowBadgeCenter.x = mBadgeCenter.x + screenPoint[0];
-        mRowBadgeCenter.y = mBadgeCenter.y + screenPoint[1];
+        getLocationOnScreen(mScreenPoint);
+        mRowBadgeCenter.x = mBadgeCenter.x + mScreenPoint[0];
+        mRowBadgeCenter.y = mBadgeCenter.y + mScreenPoint[1];
     }
 
     private void animateHide(PointF center) {
@@ -414,17 +1097,32 @@ public class DraggableBadgeView extends View implements Badge {
         }
         if (mAnimator == null || !mAnimator.isRunning()) {
             screenFromWindow(true);
-            mAnimator = BadgeAnimator.start(createBadgeBitmap(), center, this);
+            mAnimator = BadgeAnimator.start(createBadgeBitmap(), center, this, mDismissParticlesPerSide, mDismissDuration);
             setBadgeNumber(0);
         }
     }
 
+    /**
+     * 设置拖拽消除时粒子动画的参数
+     *
+     * @param particlesPerSide 沿badge较长的一边切分的粒子数，默认6
+     * @param duration         动画时长，单位毫秒，默认500
+     */
+    public Badge setDismissAnimation(int particlesPerSide, long duration) {
+        mDismissParticlesPerSide = particlesPerSide;
+        mDismissDuration = duration;
+        return this;
+    }
+
     public void reset() {
         mDragCenter.x = -1000;
         mDragCenter.y = -1000;
         mDragQuadrant = 4;
         screenFromWindow(false);
-        getParent().requestDisallowInterceptTouchEvent(false);
+        ViewParent parent = getParent();
+        if (parent != null) {
+            parent.requestDisallowInterceptTouchEvent(false);
+        }
         invalidate();
     }
 
@@ -444,15 +1142,71 @@ public class DraggableBadgeView extends View implements Badge {
      */
     @Override
     public Badge setBadgeNumber(int badgeNumber) {
+        if (badgeNumber == mBadgeNumber && mBadgeTextLength >= 0) {
+            return this;
+        }
+        //只有显示中的数字变成另一个数字时才滚动，旧文字换到mRollFromText中，不需要复制
+        boolean roll = mRollEnabled && mBadgeTextLength > 0 && badgeNumber > 0 && !mDragging
+                && (mAnimator == null || !mAnimator.isRunning()) && getWindowToken() != null && isShown();
+        if (roll) {
+            char[] fromText = mRollFromText;
+            mRollFromText = mBadgeText;
+            mRollFromLength = mBadgeTextLength;
+            mBadgeText = fromText;
+            mRollUp = badgeNumber > mBadgeNumber;
+        }
         mBadgeNumber = badgeNumber;
-        if (mBadgeNumber < 0) {
-            mBadgeText = "";
-        } else if (mBadgeNumber > 99) {
-            mBadgeText = mExact ? String.valueOf(mBadgeNumber) : "99+";//精确模式下显示具体的数字，即使数字超过100
-        } else if (mBadgeNumber > 0 && mBadgeNumber <= 99) {
-            mBadgeText = String.valueOf(mBadgeNumber);
+        updateBadgeText();
+        if (badgeNumber == 0) {
+            removeFromHitIndex();
+        }
+        if (roll && !isSameText(mRollFromText, mRollFromLength, mBadgeText, mBadgeTextLength)) {
+            startRoll();
+        } else if (mRolling) {
+            stopRoll();
+        }
+        //数字为0时badge隐藏，提醒效果暂停
+        updateClock(getWindowToken() != null);
+        invalidateBadge();
+        return this;
+    }
+
+    private static boolean isSameText(char[] a, int aLength, char[] b, int bLength) {
+        if (aLength != bLength) {
+            return false;
+        }
+        for (int i = 0; i < aLength; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //格式化到复用的mBadgeText中，不会创建新的String
+    private void updateBadgeText() {
+        if (mBadgeNumber <= 0) {
+            mBadgeTextLength = 0;
+        } else {
+            //精确模式下显示具体的数字，即使数字超过100
+            mBadgeTextLength = (mExact ? mExactFormatter : mBadgeNumberFormatter).format(mBadgeNumber, mBadgeText);
+        }
+    }
+
+    /**
+     * 设置非精确模式下数字的显示格式，默认是BadgeNumberFormatter.capped(99)，即超过99显示"99+"
+     * <p>
+     * 不在Badge接口中，避免外部实现的Badge需要新增方法
+     */
+    public DraggableBadgeView setBadgeNumberFormatter(BadgeNumberFormatter formatter) {
+        if (formatter == null) {
+            throw new IllegalStateException("formatter can not be null");
+        }
+        mBadgeNumberFormatter = formatter;
+        if (mBadgeTextLength >= 0) {
+            updateBadgeText();
+            invalidateBadge();
         }
-        invalidate();
         return this;
     }
 
@@ -463,8 +1217,12 @@ public class DraggableBadgeView extends View implements Badge {
 
     @Override
     public Badge setExactMode(boolean isExact) {
+        if (isExact == mExact) {
+            return this;
+        }
         mExact = isExact;
-        setBadgeNumber(mBadgeNumber);
+        updateBadgeText();
+        invalidateBadge();
         return this;
     }
 
@@ -475,8 +1233,11 @@ public class DraggableBadgeView extends View implements Badge {
 
     @Override
     public Badge setShowShadow(boolean showShadow) {
+        if (showShadow == mShowShadow) {
+            return this;
+        }
         mShowShadow = showShadow;
-        invalidate();
+        invalidateBadge();
         return this;
     }
 
@@ -487,8 +1248,11 @@ public class DraggableBadgeView extends View implements Badge {
 
     @Override
     public Badge setBadgeBackgroundColor(int color) {
+        if (color == mColorBackground) {
+            return this;
+        }
         mColorBackground = color;
-        invalidate();
+        invalidateBadge();
         return this;
     }
 
@@ -499,8 +1263,11 @@ public class DraggableBadgeView extends View implements Badge {
 
     @Override
     public Badge setBadgeNumberColor(int color) {
+        if (color == mColorBadgeNumber) {
+            return this;
+        }
         mColorBadgeNumber = color;
-        invalidate();
+        invalidateBadge();
         return this;
     }
 
@@ -511,8 +1278,12 @@ public class DraggableBadgeView extends View implements Badge {
 
     @Override
     public Badge setBadgeNumberSize(float size, boolean isSpValue) {
-        mBadgeNumberSize = isSpValue ? dp2px(getContext(), size) : size;
-        invalidate();
+        float value = isSpValue ? dp2px(getContext(), size) : size;
+        if (value == mBadgeNumberSize) {
+            return this;
+        }
+        mBadgeNumberSize = value;
+        invalidateBadge();
         return this;
     }
 
@@ -523,8 +1294,12 @@ public class DraggableBadgeView extends View implements Badge {
 
     @Override
     public Badge setBadgePadding(float padding, boolean isDpValue) {
-        mBadgePadding = isDpValue ? dp2px(getContext(), padding) : padding;
-        invalidate();
+        float value = isDpValue ? dp2px(getContext(), padding) : padding;
+        if (value == mBadgePadding) {
+            return this;
+        }
+        mBadgePadding = value;
+        invalidateBadge();
         return this;
     }
 
@@ -540,8 +1315,14 @@ public class DraggableBadgeView extends View implements Badge {
 
     @Override
     public Badge setDraggable(boolean draggable) {
+        if (draggable == mDraggable) {
+            return this;
+        }
         mDraggable = draggable;
-        invalidate();
+        if (!draggable) {
+            removeFromHitIndex();
+        }
+        invalidateBadge();
         return this;
     }
 
@@ -558,8 +1339,10 @@ public class DraggableBadgeView extends View implements Badge {
                 gravity == (Gravity.START | Gravity.BOTTOM) ||
                 gravity == (Gravity.END | Gravity.BOTTOM) ||
                 gravity == (Gravity.CENTER)) {
-            mBadgeGravity = gravity;
-            invalidate();
+            if (gravity != mBadgeGravity) {
+                mBadgeGravity = gravity;
+                invalidateBadge();
+            }
         } else {
             throw new IllegalStateException("only support Gravity.START | Gravity.TOP , Gravity.END | Gravity.TOP , " +
                     "Gravity.START | Gravity.BOTTOM , Gravity.END | Gravity.BOTTOM , Gravity.CENTER");
@@ -574,8 +1357,12 @@ public class DraggableBadgeView extends View implements Badge {
 
     @Override
     public Badge setGravityOffset(int offset, boolean isDpValue) {
-        mGravityOffset = isDpValue ? dp2px(getContext(), offset) : offset;
-        invalidate();
+        int value = isDpValue ? dp2px(getContext(), offset) : offset;
+        if (value == mGravityOffset) {
+            return this;
+        }
+        mGravityOffset = value;
+        invalidateBadge();
         return this;
     }
 
@@ -584,9 +1371,8 @@ public class DraggableBadgeView extends View implements Badge {
         return isDpValue ? px2dp(getContext(), mGravityOffset) : mGravityOffset;
     }
 
-    //两点之间的欧氏距离
-    private float getPointDistance(PointF p1, PointF p2) {
-        return (float) Math.sqrt(Math.pow(p1.x - p2.x, 2) + Math.pow(p1.y - p2.y, 2));
+    private float getPointDistance(float x1, float y1, float x2, float y2) {
+        return BadgeGeometry.distance(x1, y1, x2, y2);
     }
 
     public int getQuadrant(PointF p, PointF center) {
@@ -606,28 +1392,6 @@ public class DraggableBadgeView extends View implements Badge {
         return -1;
     }
 
-    /**
-     * this formula is designed by mabeijianxi
-     * website : http://blog.csdn.net/mabeijianxi/article/details/50560361
-     *
-     * @param circleCenter The circle center point.
-     * @param radius       The circle radius.
-     * @param slopeLine    The slope of line which cross the pMiddle.
-     */
-    private void getInnerTangentPoints(PointF circleCenter, float radius, Double slopeLine) {
-        float radian, xOffset, yOffset;
-        if (slopeLine != null) {
-            radian = (float) Math.atan(slopeLine);
-            xOffset = (float) (Math.cos(radian) * radius);
-            yOffset = (float) (Math.sin(radian) * radius);
-        } else {
-            xOffset = radius;
-            yOffset = 0;
-        }
-        mInnerTangentPoints.add(new PointF(circleCenter.x + xOffset, circleCenter.y + yOffset));
-        mInnerTangentPoints.add(new PointF(circleCenter.x - xOffset, circleCenter.y - yOffset));
-    }
-
     private void updateListener(int state) {
         if (mDragStateChangedListener != null)
             mDragStateChangedListener.onDragStateChanged(state, this, mTargetView);
@@ -637,6 +1401,9 @@ public class DraggableBadgeView extends View implements Badge {
     public Badge setOnDragStateChangedListener(OnDragStateChangedListener l) {
         mDraggable = l != null;
         mDragStateChangedListener = l;
+        if (!mDraggable) {
+            removeFromHitIndex();
+        }
         return this;
     }
 
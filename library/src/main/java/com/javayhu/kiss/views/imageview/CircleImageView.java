@@ -1,6 +1,7 @@
 package com.javayhu.kiss.views.imageview;
 
 import android.content.Context;
+import android.content.res.ColorStateList;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
 import android.graphics.BitmapShader;
@@ -36,9 +37,6 @@ public class CircleImageView extends ImageView {
 
     private static final ScaleType SCALE_TYPE = ScaleType.CENTER_CROP;
 
-    private static final Bitmap.Config BITMAP_CONFIG = Bitmap.Config.ARGB_8888;
-    private static final int COLORDRAWABLE_DIMENSION = 2;
-
     private static final int DEFAULT_BORDER_WIDTH = 0;
     private static final int DEFAULT_BORDER_COLOR = Color.BLACK;
     //private static final int DEFAULT_FILL_COLOR = Color.TRANSPARENT;
@@ -50,6 +48,8 @@ public class CircleImageView extends ImageView {
     private final Matrix mShaderMatrix = new Matrix();
     private final Paint mBitmapPaint = new Paint();
     private final Paint mBorderPaint = new Paint();
+    //纯色的ColorDrawable不需要bitmap，直接画成实心圆
+    private final Paint mColorPaint = new Paint();
     //private final Paint mFillPaint = new Paint();
 
     private int mBorderColor = DEFAULT_BORDER_COLOR;
@@ -61,6 +61,14 @@ public class CircleImageView extends ImageView {
     private int mBitmapWidth;
     private int mBitmapHeight;
 
+    //非BitmapDrawable在知道显示的大小之后才光栅化，位图来自DrawableRasterCache
+    private Drawable mRasterDrawable;
+    private int mRasterWidth;
+    private int mRasterHeight;
+    //ImageView的构造方法中就会调用setImageDrawable，那时字段的初始化还没有执行，颜色先记下来，在setupBitmap中设置到mColorPaint上
+    private boolean mDrawColor;
+    private int mDrawColorValue;
+
     private float mDrawableRadius;
     private float mBorderRadius;
 
@@ -95,10 +103,23 @@ public class CircleImageView extends ImageView {
 
     private void init() {
         super.setScaleType(SCALE_TYPE);
+
+        //Paint中不会变化的属性只设置一次
+        mBitmapPaint.setAntiAlias(true);
+        mColorPaint.setAntiAlias(true);
+        mColorPaint.setStyle(Paint.Style.FILL);
+        mBorderPaint.setStyle(Paint.Style.STROKE);
+        mBorderPaint.setAntiAlias(true);
+        mBorderPaint.setColor(mBorderColor);
+        mBorderPaint.setStrokeWidth(mBorderWidth);
+        //mFillPaint.setStyle(Paint.Style.FILL);
+        //mFillPaint.setAntiAlias(true);
+        //mFillPaint.setColor(mFillColor);
+        applyColorFilter();
         mReady = true;
 
         if (mSetupPending) {
-            setup();
+            setupBitmap();
             mSetupPending = false;
         }
     }
@@ -129,14 +150,16 @@ public class CircleImageView extends ImageView {
             return;
         }
 
-        if (mBitmap == null) {
+        if (mDrawColor) {
+            canvas.drawCircle(mDrawableRect.centerX(), mDrawableRect.centerY(), mDrawableRadius, mColorPaint);
+        } else if (mBitmapShader != null) {
+            //if (mFillColor != Color.TRANSPARENT) {
+            //    canvas.drawCircle(mDrawableRect.centerX(), mDrawableRect.centerY(), mDrawableRadius, mFillPaint);
+            //}
+            canvas.drawCircle(mDrawableRect.centerX(), mDrawableRect.centerY(), mDrawableRadius, mBitmapPaint);
+        } else {
             return;
         }
-
-        //if (mFillColor != Color.TRANSPARENT) {
-        //    canvas.drawCircle(mDrawableRect.centerX(), mDrawableRect.centerY(), mDrawableRadius, mFillPaint);
-        //}
-        canvas.drawCircle(mDrawableRect.centerX(), mDrawableRect.centerY(), mDrawableRadius, mBitmapPaint);
         if (mBorderWidth > 0) {
             canvas.drawCircle(mBorderRect.centerX(), mBorderRect.centerY(), mBorderRadius, mBorderPaint);
         }
@@ -145,19 +168,19 @@ public class CircleImageView extends ImageView {
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
-        setup();
+        setupBounds();
     }
 
     @Override
     public void setPadding(int left, int top, int right, int bottom) {
         super.setPadding(left, top, right, bottom);
-        setup();
+        setupBounds();
     }
 
     @Override
     public void setPaddingRelative(int start, int top, int end, int bottom) {
         super.setPaddingRelative(start, top, end, bottom);
-        setup();
+        setupBounds();
     }
 
     public int getBorderColor() {
@@ -184,7 +207,7 @@ public class CircleImageView extends ImageView {
         }
 
         mBorderWidth = borderWidth;
-        setup();
+        setupBorder();
     }
 
     public boolean isBorderOverlay() {
@@ -197,7 +220,7 @@ public class CircleImageView extends ImageView {
         }
 
         mBorderOverlay = borderOverlay;
-        setup();
+        setupBounds();
     }
 
     public boolean isDisableCircularTransformation() {
@@ -256,47 +279,144 @@ public class CircleImageView extends ImageView {
     private void applyColorFilter() {
         if (mBitmapPaint != null) {
             mBitmapPaint.setColorFilter(mColorFilter);
+            mColorPaint.setColorFilter(mColorFilter);
         }
     }
 
-    private Bitmap getBitmapFromDrawable(Drawable drawable) {
-        if (drawable == null) {
-            return null;
+    private void initializeBitmap() {
+        Drawable drawable = mDisableCircularTransformation ? null : getDrawable();
+        Bitmap bitmap = null;
+        mRasterDrawable = null;
+        mRasterWidth = 0;
+        mRasterHeight = 0;
+        mDrawColor = false;
+        if (drawable instanceof BitmapDrawable) {
+            bitmap = ((BitmapDrawable) drawable).getBitmap();
+        } else if (drawable instanceof ColorDrawable && getImageTintList() == null) {
+            mDrawColor = true;
+            mDrawColorValue = ((ColorDrawable) drawable).getColor();
+        } else if (drawable != null) {
+            //在setupBounds中按显示的大小光栅化，先保留原来的位图，缓存返回同一个位图时可以继续使用原来的shader
+            mRasterDrawable = drawable;
+            bitmap = mBitmap;
         }
+        //同一个bitmap可以继续使用原来的shader
+        if (bitmap != mBitmap) {
+            mBitmap = bitmap;
+            mBitmapShader = null;
+        }
+        setupBitmap();
+    }
 
-        if (drawable instanceof BitmapDrawable) {
-            return ((BitmapDrawable) drawable).getBitmap();
+    //drawable的state或者level变化之后，缓存中对应的位图不同，需要重新光栅化
+    @Override
+    protected void drawableStateChanged() {
+        super.drawableStateChanged();
+        if (mReady && mRasterDrawable != null && mRasterDrawable.isStateful()) {
+            invalidateRaster();
+        }
+    }
+
+    @Override
+    public void setImageLevel(int level) {
+        super.setImageLevel(level);
+        if (mRasterDrawable != null) {
+            invalidateRaster();
+        }
+    }
+
+    private void invalidateRaster() {
+        mRasterWidth = 0;
+        mRasterHeight = 0;
+        setupBounds();
+    }
+
+    //按drawable实际显示的大小光栅化，CENTER_CROP之后刚好铺满；只有需要的大小超过当前位图时才重新光栅化，变小时直接缩放
+    private void rasterizeDrawable() {
+        int side = (int) Math.ceil(Math.max(mDrawableRect.width(), mDrawableRect.height()));
+        if (side <= 0) {
+            //没有显示的空间，不能继续显示之前的drawable留下的位图
+            mRasterWidth = 0;
+            mRasterHeight = 0;
+            mBitmap = null;
+            mBitmapShader = null;
+            mBitmapPaint.setShader(null);
+            return;
+        }
+        int intrinsicWidth = mRasterDrawable.getIntrinsicWidth();
+        int intrinsicHeight = mRasterDrawable.getIntrinsicHeight();
+        int width = side;
+        int height = side;
+        if (intrinsicWidth > 0 && intrinsicHeight > 0) {
+            float scale = Math.max(side / (float) intrinsicWidth, side / (float) intrinsicHeight);
+            width = (int) Math.ceil(intrinsicWidth * scale);
+            height = (int) Math.ceil(intrinsicHeight * scale);
+        }
+        if (mRasterWidth > 0 && width <= mRasterWidth && height <= mRasterHeight) {
+            return;
         }
 
+        Bitmap bitmap;
         try {
-            Bitmap bitmap;
-
-            if (drawable instanceof ColorDrawable) {
-                bitmap = Bitmap.createBitmap(COLORDRAWABLE_DIMENSION, COLORDRAWABLE_DIMENSION, BITMAP_CONFIG);
-            } else {
-                bitmap = Bitmap.createBitmap(drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight(), BITMAP_CONFIG);
-            }
-
-            Canvas canvas = new Canvas(bitmap);
-            drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
-            drawable.draw(canvas);
-            return bitmap;
+            ColorStateList tint = getImageTintList();
+            int tintColor = tint != null ? tint.getColorForState(getDrawableState(), tint.getDefaultColor()) : 0;
+            bitmap = DrawableRasterCache.getInstance().get(mRasterDrawable, width, height, tint != null, tintColor);
         } catch (Exception e) {
             e.printStackTrace();
-            return null;
+            bitmap = null;
+        }
+        mRasterWidth = width;
+        mRasterHeight = height;
+        if (bitmap != mBitmap) {
+            mBitmap = bitmap;
+            mBitmapShader = null;
+            mBitmapPaint.setShader(null);
+        }
+        if (mBitmap != null && mBitmapShader == null) {
+            mBitmapShader = new BitmapShader(mBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+            mBitmapPaint.setShader(mBitmapShader);
+            mBitmapHeight = mBitmap.getHeight();
+            mBitmapWidth = mBitmap.getWidth();
         }
     }
 
-    private void initializeBitmap() {
-        if (mDisableCircularTransformation) {
-            mBitmap = null;
-        } else {
-            mBitmap = getBitmapFromDrawable(getDrawable());
+    /**
+     * setup分成三个阶段，每个阶段只做自己需要的工作，然后进入下一个阶段：
+     * 1.bitmap变化：重新创建BitmapShader
+     * 2.边框变化：更新边框的宽度
+     * 3.大小、padding或者边框变化：重新计算位置，只更新shader的矩阵
+     */
+    private void setupBitmap() {
+        if (!mReady) {
+            mSetupPending = true;
+            return;
+        }
+
+        mColorPaint.setColor(mDrawColorValue);
+        if (mBitmap == null) {
+            mBitmapShader = null;
+            mBitmapPaint.setShader(null);
+        } else if (mBitmapShader == null) {
+            mBitmapShader = new BitmapShader(mBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+            mBitmapPaint.setShader(mBitmapShader);//设置渲染器
+            mBitmapHeight = mBitmap.getHeight();
+            mBitmapWidth = mBitmap.getWidth();
         }
-        setup();
+
+        setupBounds();
+    }
+
+    private void setupBorder() {
+        if (!mReady) {
+            mSetupPending = true;
+            return;
+        }
+
+        mBorderPaint.setStrokeWidth(mBorderWidth);
+        setupBounds();
     }
 
-    private void setup() {
+    private void setupBounds() {
         if (!mReady) {
             mSetupPending = true;
             return;
@@ -306,29 +426,12 @@ public class CircleImageView extends ImageView {
             return;
         }
 
-        if (mBitmap == null) {
+        if (mBitmap == null && mRasterDrawable == null && !mDrawColor) {
             invalidate();
             return;
         }
 
-        mBitmapShader = new BitmapShader(mBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
-
-        mBitmapPaint.setAntiAlias(true);
-        mBitmapPaint.setShader(mBitmapShader);//设置渲染器
-
-        mBorderPaint.setStyle(Paint.Style.STROKE);
-        mBorderPaint.setAntiAlias(true);
-        mBorderPaint.setColor(mBorderColor);
-        mBorderPaint.setStrokeWidth(mBorderWidth);
-
-        //mFillPaint.setStyle(Paint.Style.FILL);
-        //mFillPaint.setAntiAlias(true);
-        //mFillPaint.setColor(mFillColor);
-
-        mBitmapHeight = mBitmap.getHeight();
-        mBitmapWidth = mBitmap.getWidth();
-
-        mBorderRect.set(calculateBounds());
+        calculateBounds(mBorderRect);
         mBorderRadius = Math.min((mBorderRect.height() - mBorderWidth) / 2.0f, (mBorderRect.width() - mBorderWidth) / 2.0f);
 
         mDrawableRect.set(mBorderRect);
@@ -337,19 +440,23 @@ public class CircleImageView extends ImageView {
         }
         mDrawableRadius = Math.min(mDrawableRect.height() / 2.0f, mDrawableRect.width() / 2.0f);
 
-        applyColorFilter();
-        updateShaderMatrix();
+        if (mRasterDrawable != null) {
+            rasterizeDrawable();
+        }
+        if (mBitmapShader != null) {
+            updateShaderMatrix();
+        }
         invalidate();
     }
 
-    private RectF calculateBounds() {
+    private void calculateBounds(RectF out) {
         int availableWidth = getWidth() - getPaddingLeft() - getPaddingRight();
         int availableHeight = getHeight() - getPaddingTop() - getPaddingBottom();
         int sideLength = Math.min(availableWidth, availableHeight);
 
         float left = getPaddingLeft() + (availableWidth - sideLength) / 2f;
         float top = getPaddingTop() + (availableHeight - sideLength) / 2f;
-        return new RectF(left, top, left + sideLength, top + sideLength);
+        out.set(left, top, left + sideLength, top + sideLength);
     }
 
     private void updateShaderMatrix() {
@@ -0,0 +1,148 @@
+package com.javayhu.kiss.views.imageview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+
+import java.util.Arrays;
+
+/**
+ * 非BitmapDrawable(VectorDrawable、LayerDrawable、ShapeDrawable等)光栅化之后的位图缓存，所有CircleImageView共用
+ * <p>
+ * 1.key是drawable的ConstantState、state、level、光栅化的像素大小和tint，同一个资源加载出来的drawable共用同一个ConstantState，
+ * 列表中大量相同的占位头像只需要光栅化一次；StateListDrawable、LevelListDrawable等在不同的state和level下是不同的位图
+ * 2.按LruCache的内存上限淘汰，默认4MB
+ * 3.没有ConstantState的drawable不缓存，每次都重新光栅化
+ * 4.只在主线程使用，返回的bitmap是共用的，调用方不能修改或者recycle
+ */
+public class DrawableRasterCache {
+
+    private static final int DEFAULT_MAX_SIZE = 4 * 1024 * 1024;//4MB
+
+    private static DrawableRasterCache sInstance;
+
+    private final LruCache<Key, Bitmap> mCache;
+    //查找时复用同一个key，只有写入缓存时才创建新的key
+    private final Key mLookupKey = new Key();
+    private final Rect mSavedBounds = new Rect();
+    private final Canvas mCanvas = new Canvas();
+
+    private DrawableRasterCache(int maxSize) {
+        mCache = new LruCache<Key, Bitmap>(maxSize) {
+            @Override
+            protected int sizeOf(Key key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    public static DrawableRasterCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new DrawableRasterCache(DEFAULT_MAX_SIZE);
+        }
+        return sInstance;
+    }
+
+    /**
+     * @param maxSize 缓存的内存上限，单位byte
+     */
+    public void setMaxSize(int maxSize) {
+        mCache.resize(maxSize);
+    }
+
+    public int getMaxSize() {
+        return mCache.maxSize();
+    }
+
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    /**
+     * 获取drawable按指定大小光栅化的位图，缓存中没有的话光栅化之后放进缓存
+     *
+     * @param tinted 是否有tint，tint的颜色已经应用在drawable上，这里只用来区分缓存
+     */
+    public Bitmap get(Drawable drawable, int width, int height, boolean tinted, int tintColor) {
+        Drawable.ConstantState state = drawable.getConstantState();
+        if (state == null) {
+            return rasterize(drawable, width, height);
+        }
+        //不是stateful的drawable的state不影响绘制，不参与比较
+        int[] drawableState = drawable.isStateful() ? drawable.getState() : null;
+        int level = drawable.getLevel();
+        mLookupKey.set(state, drawableState, level, width, height, tinted, tintColor);
+        Bitmap bitmap = mCache.get(mLookupKey);
+        if (bitmap == null) {
+            bitmap = rasterize(drawable, width, height);
+            //drawable.getState()返回的数组之后可能被修改，放进缓存的key保存一份拷贝
+            int[] stateCopy = drawableState != null ? Arrays.copyOf(drawableState, drawableState.length) : null;
+            mCache.put(new Key().set(state, stateCopy, level, width, height, tinted, tintColor), bitmap);
+        }
+        mLookupKey.state = null;
+        mLookupKey.drawableState = null;
+        return bitmap;
+    }
+
+    //drawable的bounds由ImageView管理，画完之后恢复
+    private Bitmap rasterize(Drawable drawable, int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        drawable.copyBounds(mSavedBounds);
+        mCanvas.setBitmap(bitmap);
+        drawable.setBounds(0, 0, width, height);
+        drawable.draw(mCanvas);
+        mCanvas.setBitmap(null);
+        drawable.setBounds(mSavedBounds);
+        return bitmap;
+    }
+
+    private static class Key {
+        Drawable.ConstantState state;
+        int[] drawableState;
+        int level;
+        int width;
+        int height;
+        boolean tinted;
+        int tintColor;
+
+        Key set(Drawable.ConstantState state, int[] drawableState, int level, int width, int height,
+                boolean tinted, int tintColor) {
+            this.state = state;
+            this.drawableState = drawableState;
+            this.level = level;
+            this.width = width;
+            this.height = height;
+            this.tinted = tinted;
+            this.tintColor = tinted ? tintColor : 0;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return state == key.state
+                    && Arrays.equals(drawableState, key.drawableState)
+                    && level == key.level
+                    && width == key.width
+                    && height == key.height
+                    && tinted == key.tinted
+                    && tintColor == key.tintColor;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(state);
+            result = 31 * result + Arrays.hashCode(drawableState);
+            result = 31 * result + level;
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + (tinted ? 1 : 0);
+            result = 31 * result + tintColor;
+            return result;
+        }
+    }
+}
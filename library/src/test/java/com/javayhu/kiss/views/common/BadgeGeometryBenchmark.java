@@ -0,0 +1,123 @@
+package com.javayhu.kiss.views.common;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 拖拽时每一帧的橡皮筋几何计算(两个圆的垂线交点加一次距离)，BadgeGeometry和原来的实现对比，结果输出到标准输出
+ * <p>
+ * 原来的实现：装箱的Double斜率、atan/cos/sin、Math.pow求距离，每个交点创建一个PointF(这里用float[2]代替)。
+ * 分配的字节数来自HotSpot的ThreadMXBean，其他虚拟机上跳过
+ */
+public class BadgeGeometryBenchmark {
+
+    private static final int FRAMES = 1000000;
+    private static final int ROUNDS = 5;
+    //统计本身会有少量分配
+    private static final long ALLOCATION_TOLERANCE = 1024;
+
+    private final float[] mInputs = new float[FRAMES * 4];
+    private final float[] mOut = new float[8];
+    private float mSink;
+
+    @Test
+    public void dragFrame() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long thread = Thread.currentThread().getId();
+
+        //每一帧：拖拽中心(x, y)和原位置中心(x, y)
+        Random random = new Random(0x6B697373L);
+        for (int i = 0; i < mInputs.length; i++) {
+            mInputs[i] = random.nextFloat() * 1000;
+        }
+
+        long kernel = Long.MAX_VALUE;
+        long kernelBytes = 0;
+        long legacy = Long.MAX_VALUE;
+        long legacyBytes = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long bytes = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            runKernel();
+            kernel = Math.min(kernel, System.nanoTime() - start);
+            kernelBytes = threads.getThreadAllocatedBytes(thread) - bytes;
+
+            bytes = threads.getThreadAllocatedBytes(thread);
+            start = System.nanoTime();
+            runLegacy();
+            legacy = Math.min(legacy, System.nanoTime() - start);
+            legacyBytes = threads.getThreadAllocatedBytes(thread) - bytes;
+        }
+
+        System.out.println("BadgeGeometry: " + kernel / (double) FRAMES + " ns/frame, " + kernelBytes
+                + " bytes per " + FRAMES + " frames");
+        System.out.println("legacy atan/cos/sin: " + legacy / (double) FRAMES + " ns/frame, " + legacyBytes
+                + " bytes per " + FRAMES + " frames");
+        assertTrue("BadgeGeometry allocated " + kernelBytes + " bytes", kernelBytes < ALLOCATION_TOLERANCE);
+    }
+
+    private void runKernel() {
+        float sink = 0;
+        for (int i = 0; i < FRAMES; i++) {
+            int base = i * 4;
+            float dragX = mInputs[base];
+            float dragY = mInputs[base + 1];
+            float rowX = mInputs[base + 2];
+            float rowY = mInputs[base + 3];
+            float distance = BadgeGeometry.distance(dragX, dragY, rowX, rowY);
+            float dx = dragX - rowX;
+            float dy = dragY - rowY;
+            BadgeGeometry.perpendicularPoints(dragX, dragY, 20, dx, dy, mOut, 0);
+            BadgeGeometry.perpendicularPoints(rowX, rowY, distance / 10, dx, dy, mOut, 4);
+            sink += mOut[0] + mOut[7];
+        }
+        mSink += sink;
+    }
+
+    //原来DraggableBadgeView中getPointDistance和getInnerTangentPoints的写法
+    private void runLegacy() {
+        float sink = 0;
+        for (int i = 0; i < FRAMES; i++) {
+            int base = i * 4;
+            float dragX = mInputs[base];
+            float dragY = mInputs[base + 1];
+            float rowX = mInputs[base + 2];
+            float rowY = mInputs[base + 3];
+            float distance = (float) Math.sqrt(Math.pow(dragX - rowX, 2) + Math.pow(dragY - rowY, 2));
+            Double slope = null;
+            float dx = dragX - rowX;
+            if (dx != 0) {
+                double k1 = (dragY - rowY) / dx;
+                slope = -1 / k1;
+            }
+            float[][] drag = legacyTangentPoints(dragX, dragY, 20, slope);
+            float[][] row = legacyTangentPoints(rowX, rowY, distance / 10, slope);
+            sink += drag[0][0] + row[1][1];
+        }
+        mSink += sink;
+    }
+
+    private static float[][] legacyTangentPoints(float centerX, float centerY, float radius, Double slope) {
+        float xOffset;
+        float yOffset;
+        if (slope != null) {
+            float radian = (float) Math.atan(slope);
+            xOffset = (float) (Math.cos(radian) * radius);
+            yOffset = (float) (Math.sin(radian) * radius);
+        } else {
+            xOffset = radius;
+            yOffset = 0;
+        }
+        return new float[][]{
+                new float[]{centerX + xOffset, centerY + yOffset},
+                new float[]{centerX - xOffset, centerY - yOffset}};
+    }
+}
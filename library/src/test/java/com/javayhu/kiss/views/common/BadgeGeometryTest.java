@@ -0,0 +1,94 @@
+package com.javayhu.kiss.views.common;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * perpendicularPoints和原来atan/cos/sin的公式在随机拖拽下结果一致
+ */
+public class BadgeGeometryTest {
+
+    private static final int DRAGS = 200000;
+    private static final float EPSILON = 1e-3f;
+
+    @Test
+    public void matchesLegacyFormulaOverRandomDrags() {
+        Random random = new Random(0x6B697373L);
+        float[] actual = new float[4];
+        float[] expected = new float[4];
+        for (int i = 0; i < DRAGS; i++) {
+            float centerX = random.nextFloat() * 2000;
+            float centerY = random.nextFloat() * 2000;
+            float radius = random.nextFloat() * 100;
+            float dx = (random.nextFloat() - 0.5f) * 1000;
+            float dy = (random.nextFloat() - 0.5f) * 1000;
+            //一部分拖拽落在坐标轴上，覆盖水平和竖直的情况
+            switch (random.nextInt(8)) {
+                case 0:
+                    dx = 0;
+                    break;
+                case 1:
+                    dy = 0;
+                    break;
+                case 2:
+                    dx = (int) dx;
+                    dy = (int) dy;
+                    break;
+                default:
+                    break;
+            }
+            BadgeGeometry.perpendicularPoints(centerX, centerY, radius, dx, dy, actual, 0);
+            legacyPerpendicularPoints(centerX, centerY, radius, dx, dy, expected);
+            assertArrayEquals("dx=" + dx + ", dy=" + dy + ", radius=" + radius, expected, actual, EPSILON);
+        }
+    }
+
+    @Test
+    public void axisAlignedDrags() {
+        float[] out = new float[4];
+        BadgeGeometry.perpendicularPoints(10, 20, 5, 30, 0, out, 0);
+        assertArrayEquals(new float[]{10, 15, 10, 25}, out, 0);
+        BadgeGeometry.perpendicularPoints(10, 20, 5, -30, 0, out, 0);
+        assertArrayEquals(new float[]{10, 25, 10, 15}, out, 0);
+        BadgeGeometry.perpendicularPoints(10, 20, 5, 0, 30, out, 0);
+        assertArrayEquals(new float[]{15, 20, 5, 20}, out, 0);
+        BadgeGeometry.perpendicularPoints(10, 20, 5, 0, 0, out, 0);
+        assertArrayEquals(new float[]{15, 20, 5, 20}, out, 0);
+    }
+
+    @Test
+    public void writesAtOffset() {
+        float[] out = new float[8];
+        BadgeGeometry.perpendicularPoints(0, 0, 1, 0, 1, out, 4);
+        assertArrayEquals(new float[]{0, 0, 0, 0, 1, 0, -1, 0}, out, 0);
+    }
+
+    @Test
+    public void distance() {
+        assertEquals(5f, BadgeGeometry.distance(1, 2, 4, 6), 0);
+        assertEquals(0f, BadgeGeometry.distance(3, 3, 3, 3), 0);
+    }
+
+    //原来DraggableBadgeView.drawDragging中的公式
+    private static void legacyPerpendicularPoints(float centerX, float centerY, float radius,
+                                                  float dx, float dy, float[] out) {
+        double slope;
+        if (dx != 0) {
+            double k1 = dy / dx;
+            slope = -1 / k1;
+        } else {
+            slope = 0d;
+        }
+        float radian = (float) Math.atan(slope);
+        float xOffset = (float) (Math.cos(radian) * radius);
+        float yOffset = (float) (Math.sin(radian) * radius);
+        out[0] = centerX + xOffset;
+        out[1] = centerY + yOffset;
+        out[2] = centerX - xOffset;
+        out[3] = centerY - yOffset;
+    }
+}
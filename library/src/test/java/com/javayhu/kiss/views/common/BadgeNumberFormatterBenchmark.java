@@ -0,0 +1,82 @@
+package com.javayhu.kiss.views.common;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 格式化数字的耗时和分配的内存，和原来每次String.valueOf或者拼接"99+"的做法对比，结果输出到标准输出
+ * <p>
+ * 分配的字节数来自HotSpot的ThreadMXBean，其他虚拟机上跳过
+ */
+public class BadgeNumberFormatterBenchmark {
+
+    private static final int UPDATES = 1000000;
+    private static final int ROUNDS = 5;
+    //统计本身会有少量分配
+    private static final long ALLOCATION_TOLERANCE = 1024;
+
+    private final char[] mOut = new char[BadgeNumberFormatter.MAX_LENGTH];
+    private int mSink;
+
+    @Test
+    public void format() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long thread = Thread.currentThread().getId();
+
+        BadgeNumberFormatter[] formatters = {BadgeNumberFormatter.exact(), BadgeNumberFormatter.capped(99),
+                BadgeNumberFormatter.compact()};
+        String[] names = {"exact", "capped(99)", "compact"};
+        for (int f = 0; f < formatters.length; f++) {
+            long best = Long.MAX_VALUE;
+            long allocated = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long bytes = threads.getThreadAllocatedBytes(thread);
+                long start = System.nanoTime();
+                runFormatter(formatters[f]);
+                best = Math.min(best, System.nanoTime() - start);
+                allocated = threads.getThreadAllocatedBytes(thread) - bytes;
+            }
+            System.out.println("BadgeNumberFormatter " + names[f] + ": " + best / UPDATES + " ns/update, "
+                    + allocated + " bytes per " + UPDATES + " updates");
+            assertTrue(names[f] + " allocated " + allocated + " bytes", allocated < ALLOCATION_TOLERANCE);
+        }
+
+        long best = Long.MAX_VALUE;
+        long allocated = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long bytes = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            runLegacy();
+            best = Math.min(best, System.nanoTime() - start);
+            allocated = threads.getThreadAllocatedBytes(thread) - bytes;
+        }
+        System.out.println("String.valueOf/\"99+\": " + best / UPDATES + " ns/update, "
+                + allocated + " bytes per " + UPDATES + " updates");
+    }
+
+    private void runFormatter(BadgeNumberFormatter formatter) {
+        int sink = 0;
+        for (int i = 0; i < UPDATES; i++) {
+            sink += formatter.format(i % 2000, mOut);
+        }
+        mSink += sink;
+    }
+
+    //原来DraggableBadgeView.setBadgeNumber的做法
+    private void runLegacy() {
+        int sink = 0;
+        for (int i = 0; i < UPDATES; i++) {
+            int number = i % 2000;
+            String text = number > 99 ? "99+" : String.valueOf(number);
+            sink += text.length();
+        }
+        mSink += sink;
+    }
+}
@@ -0,0 +1,86 @@
+package com.javayhu.kiss.views.common;
+
+import org.junit.Test;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+public class BadgeNumberFormatterTest {
+
+    private final char[] mOut = new char[BadgeNumberFormatter.MAX_LENGTH];
+
+    @Test
+    public void exact() {
+        BadgeNumberFormatter formatter = BadgeNumberFormatter.exact();
+        assertEquals("1", format(formatter, 1));
+        assertEquals("9", format(formatter, 9));
+        assertEquals("10", format(formatter, 10));
+        assertEquals("12345", format(formatter, 12345));
+        assertEquals("2147483647", format(formatter, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void capped() {
+        BadgeNumberFormatter formatter = BadgeNumberFormatter.capped(99);
+        assertEquals("7", format(formatter, 7));
+        assertEquals("99", format(formatter, 99));
+        assertEquals("99+", format(formatter, 100));
+        assertEquals("99+", format(formatter, Integer.MAX_VALUE));
+        assertEquals("9+", format(BadgeNumberFormatter.capped(9), 10));
+    }
+
+    @Test
+    public void compact() {
+        BadgeNumberFormatter formatter = BadgeNumberFormatter.compact();
+        assertEquals("999", format(formatter, 999));
+        assertEquals("1k", format(formatter, 1000));
+        assertEquals("1k", format(formatter, 1099));
+        assertEquals("1.2k", format(formatter, 1234));
+        assertEquals("9.9k", format(formatter, 9999));
+        assertEquals("56k", format(formatter, 56789));
+        assertEquals("999k", format(formatter, 999999));
+        assertEquals("1.2M", format(formatter, 1200000));
+        assertEquals("12M", format(formatter, 12345678));
+        assertEquals("2.1B", format(formatter, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void localeZeroDigit() {
+        Locale arabic = Locale.forLanguageTag("ar-EG-u-nu-arab");
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(arabic);
+        char zero = symbols.getZeroDigit();
+        assertEquals('\u0660', zero);
+
+        assertEquals(digits(zero, "105"), format(BadgeNumberFormatter.exact(arabic), 105));
+        assertEquals(digits(zero, "99") + "+", format(BadgeNumberFormatter.capped(99, arabic), 105));
+        assertEquals(digits(zero, "1") + symbols.getDecimalSeparator() + digits(zero, "2") + "k",
+                format(BadgeNumberFormatter.compact(arabic), 1234));
+    }
+
+    @Test
+    public void localeDecimalSeparator() {
+        assertEquals("1,2k", format(BadgeNumberFormatter.compact(Locale.GERMANY), 1234));
+    }
+
+    @Test
+    public void formatOverwritesReusedBuffer() {
+        BadgeNumberFormatter formatter = BadgeNumberFormatter.capped(99);
+        assertEquals("99+", format(formatter, 1000));
+        assertEquals("5", format(formatter, 5));
+    }
+
+    private String format(BadgeNumberFormatter formatter, int number) {
+        int length = formatter.format(number, mOut);
+        return new String(mOut, 0, length);
+    }
+
+    private static String digits(char zero, String ascii) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < ascii.length(); i++) {
+            builder.append((char) (zero + ascii.charAt(i) - '0'));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,52 @@
+package com.javayhu.kiss.views.common;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 重新打开快照文件并读取10万个计数的耗时，结果输出到标准输出
+ */
+public class BadgeSnapshotStoreBenchmark {
+
+    private static final int ENTRIES = 100000;
+    private static final int ROUNDS = 5;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void restore() throws IOException {
+        File file = new File(mFolder.getRoot(), "badges.snapshot");
+        long[] ids = new long[ENTRIES];
+        BadgeSnapshotStore store = new BadgeSnapshotStore(file);
+        long start = System.nanoTime();
+        for (int i = 0; i < ENTRIES; i++) {
+            ids[i] = BadgeSnapshotStore.idOf("badge-" + i);
+            store.put(ids[i], i);
+        }
+        store.close();
+        long write = System.nanoTime() - start;
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            start = System.nanoTime();
+            store = new BadgeSnapshotStore(file);
+            long sum = 0;
+            for (int i = 0; i < ENTRIES; i++) {
+                sum += store.get(ids[i], 0);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+            store.close();
+            assertEquals((long) ENTRIES * (ENTRIES - 1) / 2, sum);
+        }
+
+        System.out.println("BadgeSnapshotStore: write " + ENTRIES + " entries " + write / 1000000 + "ms, "
+                + "restore " + best / 1000000 + "ms");
+    }
+}
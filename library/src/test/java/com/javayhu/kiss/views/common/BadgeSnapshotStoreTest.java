@@ -0,0 +1,243 @@
+package com.javayhu.kiss.views.common;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BadgeSnapshotStoreTest {
+
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 16;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mFile;
+    private BadgeSnapshotStore mStore;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = new File(mFolder.getRoot(), "badges.snapshot");
+        mStore = new BadgeSnapshotStore(mFile);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (mStore != null) {
+            mStore.close();
+        }
+    }
+
+    @Test
+    public void getReturnsDefaultForUnknownId() {
+        assertEquals(-1, mStore.get("inbox", -1));
+        assertFalse(mStore.isRecovered());
+    }
+
+    @Test
+    public void getSeesPendingPutBeforeFlush() {
+        mStore.put("inbox", 3);
+        mStore.put("inbox", 5);
+        assertEquals(5, mStore.get("inbox", 0));
+    }
+
+    @Test
+    public void putSurvivesReopen() throws IOException {
+        mStore.put("inbox", 7);
+        mStore.put("chat", 0);
+        mStore.put("chat", 12);
+        reopen();
+        assertEquals(7, mStore.get("inbox", -1));
+        assertEquals(12, mStore.get("chat", -1));
+        assertEquals(-1, mStore.get("feed", -1));
+    }
+
+    @Test
+    public void growKeepsAllEntries() throws IOException {
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            mStore.put("badge-" + i, i);
+        }
+        mStore.flush();
+        assertTrue(mFile.length() > HEADER_SIZE + 1024L * SLOT_SIZE);
+        reopen();
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, mStore.get("badge-" + i, -1));
+        }
+    }
+
+    @Test
+    public void damagedHeaderRebuildsFile() throws IOException {
+        mStore.put("inbox", 7);
+        mStore.close();
+        mStore = null;
+        RandomAccessFile raf = new RandomAccessFile(mFile, "rw");
+        try {
+            raf.seek(12);
+            raf.writeInt(42);
+        } finally {
+            raf.close();
+        }
+        mStore = new BadgeSnapshotStore(mFile);
+        assertTrue(mStore.isRecovered());
+        assertEquals(-1, mStore.get("inbox", -1));
+        mStore.put("inbox", 8);
+        reopen();
+        assertFalse(mStore.isRecovered());
+        assertEquals(8, mStore.get("inbox", -1));
+    }
+
+    @Test
+    public void damagedSlotReadsAsMissing() throws IOException {
+        mStore.put("inbox", 7);
+        mStore.close();
+        mStore = null;
+        RandomAccessFile raf = new RandomAccessFile(mFile, "rw");
+        try {
+            long offset = findSlot(raf, BadgeSnapshotStore.idOf("inbox"));
+            raf.seek(offset + 8);
+            raf.writeInt(700);
+        } finally {
+            raf.close();
+        }
+        mStore = new BadgeSnapshotStore(mFile);
+        assertFalse(mStore.isRecovered());
+        assertEquals(-1, mStore.get("inbox", -1));
+    }
+
+    @Test
+    public void truncatedFileRebuildsFile() throws IOException {
+        mStore.close();
+        mStore = null;
+        RandomAccessFile raf = new RandomAccessFile(mFile, "rw");
+        try {
+            raf.setLength(HEADER_SIZE + SLOT_SIZE);
+        } finally {
+            raf.close();
+        }
+        mStore = new BadgeSnapshotStore(mFile);
+        assertTrue(mStore.isRecovered());
+    }
+
+    @Test
+    public void writeFailureIsThrownFromFlush() throws IOException {
+        //扩容时临时文件的位置被一个非空目录占用，替换文件失败
+        File temp = new File(mFile.getPath() + ".tmp");
+        assertTrue(new File(temp, "occupied").mkdirs());
+        for (int i = 0; i < 1000; i++) {
+            mStore.put("badge-" + i, i);
+        }
+        try {
+            mStore.flush();
+            fail("expected IOException");
+        } catch (IOException expected) {
+            //失败的修改没有丢失
+            assertEquals(999, mStore.get("badge-999", -1));
+        }
+        //异常只抛出一次
+        assertTrue(new File(temp, "occupied").delete());
+        assertTrue(temp.delete());
+        mStore.flush();
+        reopen();
+        assertEquals(999, mStore.get("badge-999", -1));
+    }
+
+    @Test
+    public void fullTableGrowsInsteadOfFailing() throws IOException {
+        int existing = 700;
+        for (int i = 0; i < existing; i++) {
+            mStore.put("old-" + i, i);
+        }
+        mStore.close();
+        mStore = null;
+        //文件头中的size改成0，写入方按size判断不需要扩容，表会在扩容之前写满
+        RandomAccessFile raf = new RandomAccessFile(mFile, "rw");
+        try {
+            raf.seek(0);
+            int magic = raf.readInt();
+            int version = raf.readInt();
+            int capacity = raf.readInt();
+            raf.writeInt(0);
+            raf.writeInt(BadgeSnapshotStore.headerCrc(magic, version, capacity, 0));
+        } finally {
+            raf.close();
+        }
+        mStore = new BadgeSnapshotStore(mFile);
+        assertFalse(mStore.isRecovered());
+
+        int added = 1000;
+        for (int i = 0; i < added; i++) {
+            mStore.put("new-" + i, i);
+        }
+        mStore.flush();
+        reopen();
+        for (int i = 0; i < existing; i++) {
+            assertEquals(i, mStore.get("old-" + i, -1));
+        }
+        for (int i = 0; i < added; i++) {
+            assertEquals(i, mStore.get("new-" + i, -1));
+        }
+    }
+
+    @Test
+    public void readsDuringWritesSeeOldOrNewValue() throws Exception {
+        final int count = 20000;
+        for (int i = 0; i < count; i++) {
+            mStore.put(i, i);
+        }
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (writing.get()) {
+                    for (int i = 0; i < count && failure.get() == null; i += 7) {
+                        int value = mStore.get(i, -1);
+                        if (value != i && value != -i) {
+                            failure.set("id " + i + " read " + value);
+                        }
+                    }
+                }
+            }
+        });
+        reader.start();
+        //第一次写入会扩容几次，第二次写入覆盖已有的槽位
+        mStore.flush();
+        for (int i = 0; i < count; i++) {
+            mStore.put(i, -i);
+        }
+        mStore.flush();
+        writing.set(false);
+        reader.join();
+        assertNull(failure.get(), failure.get());
+    }
+
+    private void reopen() throws IOException {
+        mStore.close();
+        mStore = new BadgeSnapshotStore(mFile);
+    }
+
+    private static long findSlot(RandomAccessFile raf, long id) throws IOException {
+        for (long offset = HEADER_SIZE; offset < raf.length(); offset += SLOT_SIZE) {
+            raf.seek(offset);
+            if (raf.readLong() == id) {
+                return offset;
+            }
+        }
+        throw new AssertionError("slot not found");
+    }
+}
@@ -0,0 +1,43 @@
+package com.javayhu.kiss.views.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class BadgeSpriteCacheKeyTest {
+
+    private static final char[] TEXT = {'4', '2'};
+
+    @Test
+    public void sameAttributesAreEqual() {
+        BadgeSpriteCache.Key a = key().setShadow(DraggableBadgeView.SHADOW_MODE_BITMAP, 4, 2, 3);
+        BadgeSpriteCache.Key b = key().setShadow(DraggableBadgeView.SHADOW_MODE_BITMAP, 4, 2, 3);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertEquals(a, new BadgeSpriteCache.Key(a));
+    }
+
+    @Test
+    public void shadowIsPartOfTheKey() {
+        BadgeSpriteCache.Key base = key().setShadow(DraggableBadgeView.SHADOW_MODE_BITMAP, 4, 2, 3);
+        assertNotEquals(base, key().setShadow(DraggableBadgeView.SHADOW_MODE_SOFTWARE, 4, 2, 3));
+        assertNotEquals(base, key().setShadow(DraggableBadgeView.SHADOW_MODE_BITMAP, 5, 2, 3));
+        assertNotEquals(base, key().setShadow(DraggableBadgeView.SHADOW_MODE_BITMAP, 4, -2, 3));
+        assertNotEquals(base, key().setShadow(DraggableBadgeView.SHADOW_MODE_BITMAP, 4, 2, -3));
+    }
+
+    @Test
+    public void setResetsShadow() {
+        BadgeSpriteCache.Key reused = key().setShadow(DraggableBadgeView.SHADOW_MODE_SOFTWARE, 4, 2, 3);
+        assertEquals(key(), key(reused));
+    }
+
+    private static BadgeSpriteCache.Key key() {
+        return key(new BadgeSpriteCache.Key());
+    }
+
+    private static BadgeSpriteCache.Key key(BadgeSpriteCache.Key key) {
+        return key.set(BadgeSpriteCache.KIND_DRAGGABLE, TEXT, TEXT.length, 0, 0, 0xFFFF0000, 0xFFFFFFFF, 24, 8, true);
+    }
+}